@@ -0,0 +1,295 @@
+package pck;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+
+/**
+ * Solver tables saved per board size, so a run does not rebuild them.
+ *
+ * The light-chasing transfer tables (matrix, pseudo-inverse, pivots, null
+ * space and its press patterns) depend only on region shape. A rows x cols
+ * game uses the shapes of its structured plan: squares, halves and the
+ * full board. {@link #prepare} reads them from
+ * {@code <dir>/solver-<rows>x<cols>.bin}, memory-mapped, or builds and saves
+ * them when the file is missing, stale or damaged, and hands them to
+ * {@link ChaseTransfer}'s cache.
+ *
+ * File layout, big-endian: magic, {@link #VERSION}, rows, cols, table
+ * count, the tables, then the CRC32 of everything before it as a long. Any
+ * mismatch just means the file is rebuilt.
+ *
+ * {@link #prepareAsync} does the same on the store's background thread, so
+ * a new game's first turn can wait for the tables instead of the UI.
+ * {@link #warmUpAsync} also runs the solvers on a throwaway board for a
+ * moment, so the JIT has compiled them before the first real turn.
+ */
+final class ArtifactStore {
+
+    static final int VERSION = 1;
+    private static final int MAGIC = 0x464C5054;   // "FLPT"
+
+    // Time spent exercising the solvers per size during warm-up
+    private static final long WARM_UP_NANOS = 150_000_000L;
+
+    /** Cache directory: {@code -Dpck.cache}, else ~/.cache/flip-game. */
+    static final Path DIR = Paths.get(System.getProperty("pck.cache",
+            System.getProperty("user.home") + File.separator + ".cache" + File.separator + "flip-game"));
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "flip-artifacts");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private static final Set<Long> WARMED = ConcurrentHashMap.newKeySet();
+
+    private ArtifactStore() {
+    }
+
+    // ==========================================
+    // PREPARE AND WARM UP
+    // ==========================================
+    /**
+     * Makes sure the tables of a rows x cols game are cached: already in
+     * memory, read from disk, or built now and saved in the background.
+     */
+    static void prepare(int rows, int cols) {
+        int[][] shapes = shapes(rows, cols);
+        boolean cached = true;
+        for (int[] s : shapes)
+            cached &= ChaseTransfer.cached(s[0], s[1]) != null;
+        if (cached)
+            return;
+
+        Path file = file(rows, cols);
+        try {
+            for (ChaseTransfer t : load(file, rows, cols))
+                ChaseTransfer.install(t);
+            return;
+        } catch (NoSuchFileException e) {
+            // First game of this size
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Rebuilding " + file.getFileName() + ": " + e.getMessage());
+        }
+
+        List<ChaseTransfer> tables = new ArrayList<>();
+        for (int[] s : shapes)
+            tables.add(ChaseTransfer.forShape(s[0], s[1]));
+        WORKER.execute(() -> {
+            try {
+                save(file, rows, cols, tables);
+            } catch (IOException e) {
+                System.err.println("Solver tables not saved: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * {@link #prepare} on the background thread, after any warm-up already
+     * queued. The future completes once the tables are cached.
+     */
+    static CompletableFuture<Void> prepareAsync(int rows, int cols) {
+        return CompletableFuture.runAsync(() -> prepare(rows, cols), WORKER);
+    }
+
+    /**
+     * Prepares each n x n size and warms up its solvers on a background
+     * thread; sizes already warmed in this run are skipped.
+     */
+    static void warmUpAsync(int... sizes) {
+        WORKER.execute(() -> {
+            for (int n : sizes) {
+                if (!WARMED.add(((long) n << 32) | n))
+                    continue;
+                prepare(n, n);
+                warmUp(n, n);
+            }
+        });
+    }
+
+    /** Solves the plan's regions of random boards until WARM_UP_NANOS pass. */
+    private static void warmUp(int rows, int cols) {
+        SolverContext ctx = SolverContext.of(rows, cols, FlipKernel.PLUS);
+        RegionSearch search = new RegionSearch(rows, cols);
+        BitBoard board = new BitBoard(rows, cols);
+        Random rand = new Random(rows * 31L + cols);
+
+        long deadline = System.nanoTime() + WARM_UP_NANOS;
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < rows + cols; i++)
+                board.press(rand.nextInt(rows), rand.nextInt(cols));
+            int[][] cells = board.toArray();
+            for (int[] reg : ctx.regions)
+                if (reg[0] <= reg[1] && reg[2] <= reg[3])
+                    search.firstMove(cells, reg[0], reg[1], reg[2], reg[3]);
+
+            IncrementalSolution solution = IncrementalSolution.of(board);
+            if (solution != null)
+                for (int i = 0; i < rows; i++)
+                    solution.press(rand.nextInt(rows), rand.nextInt(cols));
+        }
+    }
+
+    /** Distinct non-empty region shapes of the structured plan, as {height, width}. */
+    static int[][] shapes(int rows, int cols) {
+        Set<Long> seen = new LinkedHashSet<>();
+        for (int[] reg : SolverContext.of(rows, cols).regions) {
+            int h = reg[1] - reg[0] + 1, w = reg[3] - reg[2] + 1;
+            if (h > 0 && w > 0)
+                seen.add(((long) h << 32) | w);
+        }
+        int[][] shapes = new int[seen.size()][];
+        int i = 0;
+        for (long key : seen)
+            shapes[i++] = new int[]{(int) (key >>> 32), (int) key};
+        return shapes;
+    }
+
+    static Path file(int rows, int cols) {
+        return DIR.resolve("solver-" + rows + "x" + cols + ".bin");
+    }
+
+    // ==========================================
+    // READ (MEMORY-MAPPED)
+    // ==========================================
+    static List<ChaseTransfer> load(Path file, int rows, int cols) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 28 || size > Integer.MAX_VALUE)
+                throw new IOException("bad size " + size);
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            int end = (int) size - Long.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(map.duplicate().limit(end));
+            if (crc.getValue() != map.getLong(end))
+                throw new IOException("checksum mismatch");
+
+            ByteBuffer in = map.duplicate().limit(end);
+            if (in.getInt() != MAGIC)
+                throw new IOException("not a solver table file");
+            int version = in.getInt();
+            if (version != VERSION)
+                throw new IOException("version " + version + ", expected " + VERSION);
+            if (in.getInt() != rows || in.getInt() != cols)
+                throw new IOException("tables for another size");
+
+            int count = in.getInt();
+            List<ChaseTransfer> tables = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+                tables.add(readTransfer(in));
+            return tables;
+        }
+    }
+
+    private static ChaseTransfer readTransfer(ByteBuffer in) {
+        int height = in.getInt(), width = in.getInt();
+        BitMatrix matrix = readMatrix(in, width, width);
+        BitMatrix rowOps = readMatrix(in, width, width);
+        int[] pivots = readInts(in);
+        long[][] kernel = new long[in.getInt()][];
+        for (int k = 0; k < kernel.length; k++)
+            kernel[k] = readLongs(in);
+        int[] kernelLeads = readInts(in);
+        long[][] nullPresses = new long[in.getInt()][];
+        for (int k = 0; k < nullPresses.length; k++)
+            nullPresses[k] = readLongs(in);
+        return new ChaseTransfer(height, width, matrix, rowOps, pivots, kernel, kernelLeads, nullPresses);
+    }
+
+    private static BitMatrix readMatrix(ByteBuffer in, int rows, int cols) {
+        BitMatrix m = new BitMatrix(rows, cols);
+        long[] data = readLongs(in);
+        if (data.length != m.data.length)
+            throw new IllegalStateException("matrix of " + data.length + " words, expected " + m.data.length);
+        System.arraycopy(data, 0, m.data, 0, data.length);
+        return m;
+    }
+
+    private static int[] readInts(ByteBuffer in) {
+        int[] a = new int[in.getInt()];
+        in.asIntBuffer().get(a);
+        in.position(in.position() + a.length * Integer.BYTES);
+        return a;
+    }
+
+    private static long[] readLongs(ByteBuffer in) {
+        long[] a = new long[in.getInt()];
+        in.asLongBuffer().get(a);
+        in.position(in.position() + a.length * Long.BYTES);
+        return a;
+    }
+
+    // ==========================================
+    // WRITE
+    // ==========================================
+    /** Writes to a temporary file first, then moves it into place. */
+    static void save(Path file, int rows, int cols, List<ChaseTransfer> tables) throws IOException {
+        int size = 5 * Integer.BYTES + Long.BYTES;
+        for (ChaseTransfer t : tables)
+            size += transferBytes(t);
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(cols).putInt(tables.size());
+        for (ChaseTransfer t : tables)
+            writeTransfer(out, t);
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), 0, out.position());
+        out.putLong(crc.getValue());
+
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, out.array());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static int transferBytes(ChaseTransfer t) {
+        int size = 2 * Integer.BYTES;
+        size += Integer.BYTES + t.matrix.data.length * Long.BYTES;
+        size += Integer.BYTES + t.rowOps.data.length * Long.BYTES;
+        size += Integer.BYTES + t.pivots.length * Integer.BYTES;
+        size += Integer.BYTES;
+        for (long[] v : t.kernel)
+            size += Integer.BYTES + v.length * Long.BYTES;
+        size += Integer.BYTES + t.kernelLeads.length * Integer.BYTES;
+        size += Integer.BYTES;
+        for (long[] v : t.nullPresses)
+            size += Integer.BYTES + v.length * Long.BYTES;
+        return size;
+    }
+
+    private static void writeTransfer(ByteBuffer out, ChaseTransfer t) {
+        out.putInt(t.height).putInt(t.width);
+        writeLongs(out, t.matrix.data);
+        writeLongs(out, t.rowOps.data);
+        writeInts(out, t.pivots);
+        out.putInt(t.kernel.length);
+        for (long[] v : t.kernel)
+            writeLongs(out, v);
+        writeInts(out, t.kernelLeads);
+        out.putInt(t.nullPresses.length);
+        for (long[] v : t.nullPresses)
+            writeLongs(out, v);
+    }
+
+    private static void writeInts(ByteBuffer out, int[] a) {
+        out.putInt(a.length);
+        out.asIntBuffer().put(a);
+        out.position(out.position() + a.length * Integer.BYTES);
+    }
+
+    private static void writeLongs(ByteBuffer out, long[] a) {
+        out.putInt(a.length);
+        out.asLongBuffer().put(a);
+        out.position(out.position() + a.length * Long.BYTES);
+    }
+}
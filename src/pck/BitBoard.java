@@ -0,0 +1,277 @@
+package pck;
+import java.util.*;
+
+/**
+ * Bit-packed board. Each row is stored in ceil(cols / 64) long words and a
+ * set bit marks a BLACK (0) cell, so "all white" means "all words are zero".
+ * Presses, region checks and the chase-down step work a word at a time, and
+ * on wide boards several words at a time through {@link RowKernels}.
+ */
+public class BitBoard {
+
+    final int rows;
+    final int cols;
+    final int words;          // longs per row
+    final long lastMask;      // valid bits in the last word of a row
+    final long[] bits;        // row-major, rows * words
+
+    final boolean vector;     // use the SIMD row kernels
+
+    // Scratch row for the chase: word w at pattern[PAD + w], zero-padded
+    private final long[] pattern;
+
+    BitBoard(int rows, int cols) {
+        this(rows, cols, RowKernels.VECTOR);
+    }
+
+    BitBoard(int rows, int cols, boolean vector) {
+        this.rows = rows;
+        this.cols = cols;
+        this.words = (cols + 63) >>> 6;
+        this.lastMask = (cols & 63) == 0 ? -1L : (1L << (cols & 63)) - 1;
+        this.bits = new long[rows * words];
+        this.vector = vector && RowKernels.VECTOR;
+        this.pattern = new long[words + 2 * RowKernels.PAD];
+    }
+
+    // ==========================================
+    // CONVERSION FROM / TO int[][] (1=White, 0=Black)
+    // ==========================================
+    static BitBoard fromArray(int[][] board) {
+        BitBoard b = new BitBoard(board.length, board[0].length);
+        b.load(board);
+        return b;
+    }
+
+    void load(int[][] board) {
+        Arrays.fill(bits, 0L);
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++)
+                if (board[r][c] == 0)
+                    bits[r * words + (c >>> 6)] |= 1L << c;
+    }
+
+    int[][] toArray() {
+        int[][] board = new int[rows][cols];
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++)
+                board[r][c] = isWhite(r, c) ? 1 : 0;
+        return board;
+    }
+
+    BitBoard copy() {
+        BitBoard b = new BitBoard(rows, cols, vector);
+        System.arraycopy(bits, 0, b.bits, 0, bits.length);
+        return b;
+    }
+
+    void copyFrom(BitBoard other) {
+        System.arraycopy(other.bits, 0, bits, 0, bits.length);
+    }
+
+    // ==========================================
+    // CELL ACCESS
+    // ==========================================
+    boolean isWhite(int r, int c) {
+        return (bits[r * words + (c >>> 6)] & (1L << c)) == 0;
+    }
+
+    void toggle(int r, int c) {
+        bits[r * words + (c >>> 6)] ^= 1L << c;
+    }
+
+    /**
+     * Copies columns c1..c1+width-1 of row r into {@code out}, shifted so
+     * that column c1 lands on bit 0.
+     */
+    void readRow(int r, int c1, int width, long[] out) {
+        int base = r * words;
+        int outWords = (width + 63) >>> 6;
+        int shift = c1 & 63;
+        for (int i = 0; i < outWords; i++) {
+            int w = (c1 >>> 6) + i;
+            long lo = bits[base + w] >>> shift;
+            long hi = (shift != 0 && w + 1 < words) ? bits[base + w + 1] << (64 - shift) : 0L;
+            out[i] = lo | hi;
+        }
+        if ((width & 63) != 0)
+            out[outWords - 1] &= (1L << (width & 63)) - 1;
+    }
+
+    /**
+     * XORs {@code width} bits of {@code in} into row r, bit 0 landing on
+     * column c1. The inverse placement of {@link #readRow}; bits of
+     * {@code in} past {@code width} must be zero.
+     */
+    void xorRow(int r, int c1, int width, long[] in) {
+        xorShifted(bits, r * words, c1, width, in);
+    }
+
+    private void xorShifted(long[] dst, int base, int c1, int width, long[] in) {
+        int w0 = c1 >>> 6, shift = c1 & 63;
+        int inWords = (width + 63) >>> 6;
+        for (int i = 0; i < inWords; i++) {
+            dst[base + w0 + i] ^= in[i] << shift;
+            if (shift != 0 && w0 + i + 1 < words)
+                dst[base + w0 + i + 1] ^= in[i] >>> (64 - shift);
+        }
+    }
+
+    // ==========================================
+    // PRESS (PLUS SHAPE, CLIPPED AT THE EDGES)
+    // ==========================================
+    void press(int r, int c) {
+        int base = r * words;
+        int w = c >>> 6;
+        long bit = 1L << c;
+
+        // Own row: c-1, c, c+1
+        bits[base + w] ^= bit;
+        if (c > 0)
+            bits[base + ((c - 1) >>> 6)] ^= 1L << (c - 1);
+        if (c + 1 < cols)
+            bits[base + ((c + 1) >>> 6)] ^= 1L << (c + 1);
+
+        // Rows above and below
+        if (r > 0)
+            bits[base - words + w] ^= bit;
+        if (r + 1 < rows)
+            bits[base + words + w] ^= bit;
+    }
+
+    // ==========================================
+    // REGION CHECKS
+    // ==========================================
+    boolean isAllWhite() {
+        return !RowKernels.anySet(bits, 0, bits.length, vector);
+    }
+
+    boolean isRegionWhite(int r1, int r2, int c1, int c2) {
+        int w0 = c1 >>> 6, w1 = c2 >>> 6;
+        long first = rangeMask(w0, c1, c2), last = rangeMask(w1, c1, c2);
+        for (int r = r1; r <= r2; r++) {
+            int base = r * words;
+            if ((bits[base + w0] & first) != 0 || (bits[base + w1] & last) != 0)
+                return false;
+            // Words strictly inside the region need no mask
+            if (w1 - w0 > 1 && RowKernels.anySet(bits, base + w0 + 1, base + w1, vector))
+                return false;
+        }
+        return true;
+    }
+
+    /** Bits of word {@code w} that fall inside columns c1..c2. */
+    static long rangeMask(int w, int c1, int c2) {
+        int lo = Math.max(c1, w << 6);
+        int hi = Math.min(c2, (w << 6) + 63);
+        if (lo > hi)
+            return 0L;
+        long upper = (hi & 63) == 63 ? -1L : (1L << ((hi & 63) + 1)) - 1;
+        return upper & (-1L << (lo & 63));
+    }
+
+    // ==========================================
+    // CHASE DOWN: press under every black cell of the previous row
+    // ==========================================
+    /**
+     * Runs the chase for rows r1+1..r2 of the region, one row of presses at a
+     * time. Presses are appended to {@code moves} (row-major) when it is non-null.
+     */
+    void chase(int r1, int r2, int c1, int c2, List<int[]> moves) {
+        int w0 = c1 >>> 6, w1 = c2 >>> 6;
+
+        for (int row = r1 + 1; row <= r2; row++) {
+            if (!chaseRow(row, c1, c2))
+                continue;
+
+            if (moves != null)
+                for (int w = w0; w <= w1; w++)
+                    for (long p = pattern[RowKernels.PAD + w]; p != 0; p &= p - 1)
+                        moves.add(new int[]{row, (w << 6) + Long.numberOfTrailingZeros(p)});
+        }
+    }
+
+    /**
+     * Same chase, recording presses as packed {@code row * cols + col} ints in
+     * {@code out} from index {@code count}. Returns the new count. Allocates nothing.
+     */
+    int chase(int r1, int r2, int c1, int c2, int[] out, int count) {
+        int w0 = c1 >>> 6, w1 = c2 >>> 6;
+
+        for (int row = r1 + 1; row <= r2; row++) {
+            if (!chaseRow(row, c1, c2))
+                continue;
+
+            for (int w = w0; w <= w1; w++)
+                for (long p = pattern[RowKernels.PAD + w]; p != 0; p &= p - 1)
+                    out[count++] = row * cols + (w << 6) + Long.numberOfTrailingZeros(p);
+        }
+        return count;
+    }
+
+    /**
+     * Presses every cell of row r set in {@code in}, bit 0 being column c1,
+     * a word at a time. Bits of {@code in} past {@code width} must be zero.
+     */
+    void pressRow(int r, int c1, int width, long[] in) {
+        int w0 = c1 >>> 6, w1 = (c1 + width - 1) >>> 6;
+        int p0 = RowKernels.PAD + w0, p1 = RowKernels.PAD + w1;
+        Arrays.fill(pattern, p0 - 2, p1 + 3, 0L);
+        xorShifted(pattern, RowKernels.PAD, c1, width, in);
+
+        if (RowKernels.anySet(pattern, p0, p1 + 1, vector))
+            pressRow(r, w0, w1);
+    }
+
+    /**
+     * Same chase, toggling each press into {@code presses}, a board of the
+     * same shape used as a bit set.
+     */
+    void chaseInto(int r1, int r2, int c1, int c2, BitBoard presses) {
+        int w0 = c1 >>> 6, w1 = c2 >>> 6;
+
+        for (int row = r1 + 1; row <= r2; row++) {
+            if (!chaseRow(row, c1, c2))
+                continue;
+
+            int base = row * words;
+            for (int w = w0; w <= w1; w++)
+                presses.bits[base + w] ^= pattern[RowKernels.PAD + w];
+        }
+    }
+
+    /** Presses {@code row} under the black cells of the row above; false if none. */
+    private boolean chaseRow(int row, int c1, int c2) {
+        int w0 = c1 >>> 6, w1 = c2 >>> 6;
+        int above = (row - 1) * words;
+        int p0 = RowKernels.PAD + w0, p1 = RowKernels.PAD + w1;
+
+        // pressRow reads two words either side of the pattern
+        pattern[p0 - 2] = pattern[p0 - 1] = 0L;
+        pattern[p1 + 1] = pattern[p1 + 2] = 0L;
+
+        System.arraycopy(bits, above + w0, pattern, p0, w1 - w0 + 1);
+        pattern[p0] &= rangeMask(w0, c1, c2);
+        pattern[p1] &= rangeMask(w1, c1, c2);
+
+        if (!RowKernels.anySet(pattern, p0, p1 + 1, vector))
+            return false;
+        pressRow(row, w0, w1);
+        return true;
+    }
+
+    /** Presses every cell of {@code row} set in the pattern words w0..w1. */
+    private void pressRow(int row, int w0, int w1) {
+        int base = row * words;
+        int lo = Math.max(0, w0 - 1), hi = Math.min(words - 1, w1 + 1);
+
+        RowKernels.pressRow(bits, base,
+                row > 0 ? base - words : -1,
+                row + 1 < rows ? base + words : -1,
+                pattern, lo, hi, vector);
+
+        // p << 1 may carry past the last column
+        if (hi == words - 1)
+            bits[base + hi] &= lastMask;
+    }
+}
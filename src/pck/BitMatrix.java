@@ -0,0 +1,360 @@
+package pck;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * Dense matrix over GF(2) with each row packed into long words.
+ * Addition is XOR, so row operations are word-level XORs.
+ *
+ * Large matrices are reduced with the Method of Four Russians (M4RI): pivots
+ * are found K columns at a time, all 2^K sums of those pivot rows are
+ * tabulated in Gray code order, and every other row is then cleared in one
+ * table lookup and one row XOR instead of up to K. Rows are independent in
+ * that step, so it runs in parallel row strips.
+ */
+public class BitMatrix {
+
+    static final int K = 8;                       // columns per Four Russians block
+    static final int FOUR_RUSSIANS_ROWS = 128;    // smaller matrices use plain Gauss-Jordan
+    static final int STRIP_ROWS = 256;            // rows per parallel strip
+    static final long PARALLEL_WORDS = 1 << 16;   // rows * words below this stay on one thread
+
+    final int rows;
+    final int cols;
+    final int words;          // longs per row
+    final long[] data;        // row-major, rows * words
+
+    BitMatrix(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.words = (cols + 63) >>> 6;
+        this.data = new long[rows * words];
+    }
+
+    BitMatrix copy() {
+        BitMatrix m = new BitMatrix(rows, cols);
+        System.arraycopy(data, 0, m.data, 0, data.length);
+        return m;
+    }
+
+    BitMatrix transpose() {
+        BitMatrix t = new BitMatrix(cols, rows);
+        for (int r = 0; r < rows; r++)
+            for (int w = 0; w < words; w++)
+                for (long bits = data[r * words + w]; bits != 0; bits &= bits - 1)
+                    t.set((w << 6) + Long.numberOfTrailingZeros(bits), r);
+        return t;
+    }
+
+    // ==========================================
+    // ELEMENT ACCESS
+    // ==========================================
+    boolean get(int r, int c) {
+        return (data[r * words + (c >>> 6)] & (1L << c)) != 0;
+    }
+
+    void set(int r, int c) {
+        data[r * words + (c >>> 6)] |= 1L << c;
+    }
+
+    void flip(int r, int c) {
+        data[r * words + (c >>> 6)] ^= 1L << c;
+    }
+
+    long[] row(int r) {
+        return Arrays.copyOfRange(data, r * words, (r + 1) * words);
+    }
+
+    // ==========================================
+    // ROW OPERATIONS
+    // ==========================================
+    void swapRows(int a, int b) {
+        if (a == b)
+            return;
+        int pa = a * words, pb = b * words;
+        for (int w = 0; w < words; w++) {
+            long t = data[pa + w];
+            data[pa + w] = data[pb + w];
+            data[pb + w] = t;
+        }
+    }
+
+    /** row[dst] ^= row[src], starting at word {@code from}. */
+    void xorRow(int dst, int src, int from) {
+        int pd = dst * words, ps = src * words;
+        for (int w = from; w < words; w++)
+            data[pd + w] ^= data[ps + w];
+    }
+
+    /** this * v, with v and the result packed into longs. */
+    long[] multiply(long[] v) {
+        return multiply(v, new long[(rows + 63) >>> 6]);
+    }
+
+    /** this * v written into {@code out} (which is returned). */
+    long[] multiply(long[] v, long[] out) {
+        Arrays.fill(out, 0L);
+        for (int r = 0; r < rows; r++) {
+            int base = r * words;
+            long acc = 0;
+            for (int w = 0; w < words; w++)
+                acc ^= data[base + w] & v[w];
+            if ((Long.bitCount(acc) & 1) != 0)
+                out[r >>> 6] |= 1L << r;
+        }
+        return out;
+    }
+
+    // ==========================================
+    // GAUSS-JORDAN ELIMINATION
+    // ==========================================
+    /**
+     * Reduces this matrix in place to reduced row echelon form, looking for
+     * pivots only in columns 0..pivotCols-1. Returns the pivot column of each
+     * of the first {@code rank} rows.
+     */
+    int[] reduce(int pivotCols) {
+        if (rows >= FOUR_RUSSIANS_ROWS && pivotCols >= 2 * K)
+            return reduceFourRussians(pivotCols, (long) rows * words >= PARALLEL_WORDS);
+        return reduceGaussJordan(pivotCols);
+    }
+
+    /** Same result as {@link #reduce}, one pivot column at a time. */
+    int[] reduceGaussJordan(int pivotCols) {
+        int[] pivots = new int[Math.min(rows, pivotCols)];
+        int rank = 0;
+
+        for (int c = 0; c < pivotCols && rank < rows; c++) {
+            int w = c >>> 6;
+            long bit = 1L << c;
+
+            int p = -1;
+            for (int r = rank; r < rows; r++)
+                if ((data[r * words + w] & bit) != 0) { p = r; break; }
+            if (p < 0)
+                continue;
+
+            swapRows(rank, p);
+            for (int r = 0; r < rows; r++)
+                if (r != rank && (data[r * words + w] & bit) != 0)
+                    xorRow(r, rank, w);
+
+            pivots[rank++] = c;
+        }
+
+        return Arrays.copyOf(pivots, rank);
+    }
+
+    // ==========================================
+    // FOUR RUSSIANS ELIMINATION
+    // ==========================================
+    /**
+     * Same result as {@link #reduce}, K pivot columns at a time.
+     *
+     * Rows at and below {@code rank} are zero left of the current block, so
+     * only the block's K bits of each candidate row are needed to find the
+     * block's pivots; they are kept reduced in {@code block} as pivots are
+     * found. The pivot rows are then reduced against each other, so on the
+     * pivot columns they form an identity, and any row is cleared on those
+     * columns by XORing the table entry its own bits there select.
+     */
+    int[] reduceFourRussians(int pivotCols, boolean parallel) {
+        int[] pivots = new int[Math.min(rows, pivotCols)];
+        int rank = 0;
+        long[] block = new long[rows];
+        long[] table = new long[(1 << K) * words];
+
+        for (int c = 0; c < pivotCols && rank < rows; c += K) {
+            int c0 = c;
+            int k = Math.min(K, pivotCols - c);
+            long kMask = (1L << k) - 1;
+            for (int r = rank; r < rows; r++)
+                block[r] = bits(r, c) & kMask;
+
+            // ----- Pivots of this block -----
+            int found = 0;
+            int[] pivotCol = new int[k];
+            for (int j = 0; j < k && rank + found < rows; j++) {
+                long bit = 1L << j;
+                int p = -1;
+                for (int r = rank + found; r < rows; r++)
+                    if ((block[r] & bit) != 0) { p = r; break; }
+                if (p < 0)
+                    continue;
+
+                int at = rank + found;
+                swapRows(at, p);
+                long t = block[at]; block[at] = block[p]; block[p] = t;
+
+                // Keep the remaining candidates' block bits reduced
+                for (int r = at + 1; r < rows; r++)
+                    if ((block[r] & bit) != 0)
+                        block[r] ^= block[at];
+                pivotCol[found++] = c + j;
+            }
+            if (found == 0)
+                continue;
+
+            // Reduce the pivot rows against each other (identity on pivot columns):
+            // forward in the order they were found, then back
+            int w0 = c >>> 6;
+            for (int i = 1; i < found; i++)
+                for (int j = 0; j < i; j++)
+                    if (get(rank + i, pivotCol[j]))
+                        xorRow(rank + i, rank + j, w0);
+            for (int i = found - 1; i > 0; i--)
+                for (int j = 0; j < i; j++)
+                    if (get(rank + j, pivotCol[i]))
+                        xorRow(rank + j, rank + i, w0);
+
+            // ----- Table of all 2^found sums of pivot rows, Gray code order -----
+            int span = words - w0;
+            Arrays.fill(table, 0, span, 0L);
+            for (int g = 1; g < (1 << found); g++) {
+                int i = Integer.numberOfTrailingZeros(g);
+                int src = (g ^ (1 << i)) * span, dst = g * span, row = (rank + i) * words + w0;
+                for (int w = 0; w < span; w++)
+                    table[dst + w] = table[src + w] ^ data[row + w];
+            }
+
+            // ----- Clear the pivot columns from every other row -----
+            int first = rank, last = rank + found;
+            int[] cols = Arrays.copyOf(pivotCol, found);
+            boolean contiguous = found == k;    // pivots on every block column: index is the block bits
+            IntStream strips = IntStream.range(0, (rows + STRIP_ROWS - 1) / STRIP_ROWS);
+            (parallel ? strips.parallel() : strips).forEach(s -> {
+                int end = Math.min(rows, (s + 1) * STRIP_ROWS);
+                for (int r = s * STRIP_ROWS; r < end; r++) {
+                    if (r >= first && r < last)
+                        continue;
+                    int g = 0;
+                    if (contiguous)
+                        g = (int) (bits(r, c0) & kMask);
+                    else
+                        for (int i = 0; i < cols.length; i++)
+                            if (get(r, cols[i]))
+                                g |= 1 << i;
+                    if (g == 0)
+                        continue;
+                    int src = g * span, row = r * words + w0;
+                    for (int w = 0; w < span; w++)
+                        data[row + w] ^= table[src + w];
+                }
+            });
+
+            System.arraycopy(cols, 0, pivots, rank, found);
+            rank += found;
+        }
+
+        return Arrays.copyOf(pivots, rank);
+    }
+
+    /** 64 bits of row r starting at column c (zero past the last column). */
+    private long bits(int r, int c) {
+        int base = r * words, w = c >>> 6, shift = c & 63;
+        long lo = data[base + w] >>> shift;
+        long hi = (shift != 0 && w + 1 < words) ? data[base + w + 1] << (64 - shift) : 0L;
+        return lo | hi;
+    }
+
+    // ==========================================
+    // RANK, INVERSE, SOLVE
+    // ==========================================
+    int rank() {
+        return copy().reduce(cols).length;
+    }
+
+    /** Inverse of this square matrix, or null if it is singular. */
+    BitMatrix inverse() {
+        if (rows != cols)
+            throw new IllegalArgumentException("Not square: " + rows + "x" + cols);
+
+        // Reduce [A | I]; where A becomes I, the right half is A^-1
+        BitMatrix aug = new BitMatrix(rows, 2 * cols);
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(data, r * words, aug.data, r * aug.words, words);
+            aug.set(r, cols + r);
+        }
+        if (aug.reduce(cols).length < rows)
+            return null;
+
+        BitMatrix inv = new BitMatrix(rows, cols);
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++)
+                if (aug.get(r, cols + c))
+                    inv.set(r, c);
+        return inv;
+    }
+
+    /** this * other. */
+    BitMatrix multiply(BitMatrix other) {
+        if (cols != other.rows)
+            throw new IllegalArgumentException("Shapes " + rows + "x" + cols
+                    + " and " + other.rows + "x" + other.cols + " do not chain");
+
+        BitMatrix product = new BitMatrix(rows, other.cols);
+        for (int r = 0; r < rows; r++) {
+            int dst = r * product.words;
+            for (int w = 0; w < words; w++)
+                for (long bits = data[r * words + w]; bits != 0; bits &= bits - 1) {
+                    int src = ((w << 6) + Long.numberOfTrailingZeros(bits)) * other.words;
+                    for (int v = 0; v < other.words; v++)
+                        product.data[dst + v] ^= other.data[src + v];
+                }
+        }
+        return product;
+    }
+
+    /**
+     * Solves this * x = b. Free variables are set to zero.
+     * Returns x packed into longs, or null when the system is inconsistent.
+     */
+    long[] solve(long[] b) {
+        BitMatrix aug = augment(b);
+        int[] pivots = aug.reduce(cols);
+
+        // A zero row with a 1 on the right-hand side means no solution
+        for (int r = pivots.length; r < rows; r++)
+            if (aug.get(r, cols))
+                return null;
+
+        long[] x = new long[words];
+        for (int i = 0; i < pivots.length; i++)
+            if (aug.get(i, cols))
+                x[pivots[i] >>> 6] |= 1L << pivots[i];
+        return x;
+    }
+
+    /** Basis of { x : this * x = 0 }, one vector per free column. */
+    List<long[]> nullSpace() {
+        BitMatrix m = copy();
+        int[] pivots = m.reduce(cols);
+        boolean[] isPivot = new boolean[cols];
+        for (int p : pivots)
+            isPivot[p] = true;
+
+        List<long[]> basis = new ArrayList<>();
+        for (int f = 0; f < cols; f++) {
+            if (isPivot[f])
+                continue;
+            long[] v = new long[words];
+            v[f >>> 6] |= 1L << f;
+            for (int i = 0; i < pivots.length; i++)
+                if (m.get(i, f))
+                    v[pivots[i] >>> 6] |= 1L << pivots[i];
+            basis.add(v);
+        }
+        return basis;
+    }
+
+    /** [this | b] with b as one extra column. */
+    private BitMatrix augment(long[] b) {
+        BitMatrix aug = new BitMatrix(rows, cols + 1);
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(data, r * words, aug.data, r * aug.words, words);
+            if ((b[r >>> 6] & (1L << r)) != 0)
+                aug.set(r, cols);
+        }
+        return aug;
+    }
+}
@@ -0,0 +1,65 @@
+package pck;
+import java.util.*;
+
+/**
+ * Gauss-Jordan vs Four Russians elimination on large random square
+ * matrices.
+ *
+ * For each size, reduces the same matrix with {@link BitMatrix#reduceGaussJordan},
+ * with {@link BitMatrix#reduceFourRussians} on one thread and across row
+ * strips, and prints the times and speedups. Gauss-Jordan is cubic in the
+ * size with no table to amortise it, so it is skipped above
+ * {@code maxGaussSize}.
+ *
+ * Usage: BitMatrixBenchmark [sizes,...] [maxGaussSize]
+ */
+public class BitMatrixBenchmark {
+
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[] {1024, 2048, 4096, 8192, 16384};
+        int maxGaussSize = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+
+        System.out.println("M4RI block " + BitMatrix.K + " columns, "
+                + Runtime.getRuntime().availableProcessors() + " processors");
+        System.out.printf("%6s %8s %14s %14s %14s %9s%n",
+                "size", "rank", "gauss ms", "m4ri ms", "parallel ms", "speedup");
+
+        for (int n : sizes) {
+            BitMatrix m = random(n, new SplittableRandom(n));
+
+            // One untimed pass so the JIT has compiled the loops
+            m.copy().reduceFourRussians(Math.min(n, 512), false);
+
+            double gauss = Double.NaN;
+            if (n <= maxGaussSize)
+                gauss = time(() -> m.copy().reduceGaussJordan(n).length);
+            int[] rank = new int[1];
+            double m4ri = time(() -> rank[0] = m.copy().reduceFourRussians(n, false).length);
+            double parallel = time(() -> m.copy().reduceFourRussians(n, true).length);
+
+            System.out.printf("%6d %8d %14s %14.0f %14.0f %9s%n", n, rank[0],
+                    Double.isNaN(gauss) ? "-" : String.format("%.0f", gauss), m4ri, parallel,
+                    Double.isNaN(gauss) ? "-" : String.format("%.2fx", gauss / Math.min(m4ri, parallel)));
+        }
+    }
+
+    private static BitMatrix random(int n, SplittableRandom random) {
+        BitMatrix m = new BitMatrix(n, n);
+        for (int i = 0; i < m.data.length; i++)
+            m.data[i] = random.nextLong();
+        if ((n & 63) != 0)
+            for (int r = 0; r < n; r++)
+                m.data[r * m.words + m.words - 1] &= (1L << (n & 63)) - 1;
+        return m;
+    }
+
+    /** Milliseconds for one run of op (the copy inside op is included). */
+    private static double time(java.util.function.IntSupplier op) {
+        long t0 = System.nanoTime();
+        if (op.getAsInt() < 0)
+            throw new AssertionError();
+        return (System.nanoTime() - t0) / 1e6;
+    }
+}
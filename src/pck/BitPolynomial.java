@@ -0,0 +1,150 @@
+package pck;
+import java.util.*;
+
+/**
+ * Polynomials over GF(2) packed into long words: bit i of the array is the
+ * coefficient of t^i. Addition is XOR and multiplication is carry-less, so
+ * every operation here is a loop of word shifts and XORs.
+ *
+ * Arrays may be longer than the degree needs; the high words are zero.
+ */
+public class BitPolynomial {
+
+    private BitPolynomial() {
+    }
+
+    static long[] zero(int maxDegree) {
+        return new long[(maxDegree >>> 6) + 1];
+    }
+
+    static long[] one() {
+        return new long[] {1L};
+    }
+
+    /** Degree of p, or -1 for the zero polynomial. */
+    static int degree(long[] p) {
+        for (int w = p.length - 1; w >= 0; w--)
+            if (p[w] != 0)
+                return (w << 6) + 63 - Long.numberOfLeadingZeros(p[w]);
+        return -1;
+    }
+
+    static boolean isZero(long[] p) {
+        for (long word : p)
+            if (word != 0)
+                return false;
+        return true;
+    }
+
+    static boolean testBit(long[] p, int i) {
+        return (i >>> 6) < p.length && (p[i >>> 6] & (1L << i)) != 0;
+    }
+
+    // ==========================================
+    // ARITHMETIC
+    // ==========================================
+    /**
+     * dst ^= src * t^shift, for the words of src up to {@code srcDegree}.
+     * dst must have room for degree srcDegree + shift.
+     */
+    static void xorShifted(long[] dst, long[] src, int srcDegree, int shift) {
+        if (srcDegree < 0)
+            return;
+        int ws = shift >>> 6, bs = shift & 63;
+        int n = (srcDegree >>> 6) + 1;
+        if (bs == 0) {
+            for (int i = 0; i < n; i++)
+                dst[i + ws] ^= src[i];
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            long v = src[i];
+            dst[i + ws] ^= v << bs;
+            long carry = v >>> (64 - bs);
+            if (carry != 0)
+                dst[i + ws + 1] ^= carry;
+        }
+    }
+
+    /** a * b, one shifted XOR of b per term of a. */
+    static long[] multiply(long[] a, long[] b) {
+        int da = degree(a), db = degree(b);
+        if (da < 0 || db < 0)
+            return new long[1];
+        long[] product = zero(da + db);
+        for (int w = 0; w <= (da >>> 6); w++)
+            for (long bits = a[w]; bits != 0; bits &= bits - 1)
+                xorShifted(product, b, db, (w << 6) + Long.numberOfTrailingZeros(bits));
+        return product;
+    }
+
+    /** {quotient, remainder} of a / m; m must be non-zero. */
+    static long[][] divide(long[] a, long[] m) {
+        int dm = degree(m);
+        if (dm < 0)
+            throw new ArithmeticException("Division by the zero polynomial");
+
+        long[] rem = a.clone();
+        int dr = degree(rem);
+        long[] quot = zero(Math.max(0, dr - dm));
+        while (dr >= dm) {
+            int shift = dr - dm;
+            quot[shift >>> 6] |= 1L << shift;
+            xorShifted(rem, m, dm, shift);
+            dr = degree(rem);
+        }
+        return new long[][] {quot, rem};
+    }
+
+    static long[] mod(long[] a, long[] m) {
+        return divide(a, m)[1];
+    }
+
+    /**
+     * {g, s} with g = gcd(f, m) and s * f = g (mod m), by the bit-level
+     * extended Euclidean algorithm. Each step cancels the leading term of one
+     * remainder, so there are at most deg f + deg m steps of O(deg / 64) words.
+     */
+    static long[][] gcdExtended(long[] f, long[] m) {
+        int n = Math.max(degree(f), degree(m)) + 1;
+        long[] r0 = Arrays.copyOf(m, (n >>> 6) + 1), r1 = Arrays.copyOf(f, (n >>> 6) + 1);
+        long[] s0 = zero(2 * n), s1 = zero(2 * n);
+        s1[0] = 1;
+
+        int d0 = degree(r0), d1 = degree(r1);
+        while (d1 >= 0) {
+            while (d0 >= d1) {
+                int shift = d0 - d1;
+                xorShifted(r0, r1, d1, shift);
+                xorShifted(s0, s1, degree(s1), shift);
+                d0 = degree(r0);
+            }
+            long[] t = r0; r0 = r1; r1 = t;
+            t = s0; s0 = s1; s1 = t;
+            int d = d0; d0 = d1; d1 = d;
+        }
+        return new long[][] {r0, mod(s0, m)};
+    }
+
+    // ==========================================
+    // CHEBYSHEV-LIKE SEQUENCES
+    // ==========================================
+    /**
+     * U_n with U_0 = 1, U_1 = t and U_{k+1} = t U_k + U_{k-1}. Over GF(2)
+     * U_n is the characteristic polynomial of the n-node path graph, and
+     * U_k(P) e_1 = e_{k+1} for its adjacency matrix P.
+     */
+    static long[] chebyshevU(int n) {
+        long[] prev = one(), cur = new long[] {2L};
+        if (n == 0)
+            return prev;
+        for (int k = 1; k < n; k++) {
+            long[] next = zero(k + 1);
+            xorShifted(next, cur, k, 1);
+            xorShifted(next, prev, k - 1, 0);
+            prev = cur;
+            cur = next;
+        }
+        return cur;
+    }
+}
@@ -0,0 +1,245 @@
+package pck;
+
+import javafx.animation.*;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.util.Duration;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Board renderer that draws every tile onto one Canvas instead of creating a
+ * Button per tile. Clicks and hover are resolved by hit-testing the mouse
+ * position. Borders for the region, move highlights, the last computer move,
+ * hints and flashes live on a second, transparent overlay canvas that is
+ * redrawn from a handful of shapes, so they never touch the tile layer.
+ */
+public class CanvasBoardView extends Pane {
+
+    private static final Color WHITE_TILE = Color.WHITE;
+    private static final Color BLACK_TILE = Color.web("#212529");
+    private static final Color WHITE_BORDER = Color.web("#dee2e6");
+    private static final Color BLACK_BORDER = Color.web("#495057");
+
+    final int rows;
+    final int cols;
+    final double tile;                // tile pitch in pixels (tile + gap)
+
+    private final Canvas base;        // tiles
+    private final Canvas overlay;     // borders and highlights
+
+    // ======================================================================
+    // OVERLAY STATE
+    // ======================================================================
+
+    private int[] region;             // r1, r2, c1, c2 or null
+    private Color regionColor;
+    private int[] hintRegion;
+    private Color hintColor;
+    private final Map<Integer, Color> highlights = new LinkedHashMap<>();  // packed cell -> border
+    private int marker = -1;          // persistent highlight (packed cell)
+    private Color markerColor;
+    private int flashCell = -1;
+    private Color flashColor;
+    private int hover = -1;
+    private Color hoverColor;
+    private BooleanSupplier hoverEnabled = () -> true;
+
+    private BiConsumer<Integer, Integer> onTileClicked;
+
+    CanvasBoardView(int rows, int cols, double tile) {
+        this.rows = rows;
+        this.cols = cols;
+        this.tile = tile;
+        this.base = new Canvas(cols * tile, rows * tile);
+        this.overlay = new Canvas(cols * tile, rows * tile);
+        overlay.setMouseTransparent(true);
+        getChildren().addAll(base, overlay);
+        setPrefSize(cols * tile, rows * tile);
+        setMaxSize(cols * tile, rows * tile);
+
+        base.setOnMouseClicked(e -> {
+            int cell = hitTest(e.getX(), e.getY());
+            if (cell >= 0 && onTileClicked != null)
+                onTileClicked.accept(cell / cols, cell % cols);
+        });
+        base.setOnMouseMoved(e -> {
+            int cell = hoverEnabled.getAsBoolean() ? hitTest(e.getX(), e.getY()) : -1;
+            if (cell != hover) {
+                hover = cell;
+                drawOverlay();
+            }
+        });
+        base.setOnMouseExited(e -> {
+            if (hover >= 0) {
+                hover = -1;
+                drawOverlay();
+            }
+        });
+    }
+
+    void setOnTileClicked(BiConsumer<Integer, Integer> handler) {
+        this.onTileClicked = handler;
+    }
+
+    void setHover(Color color, BooleanSupplier enabled) {
+        this.hoverColor = color;
+        this.hoverEnabled = enabled;
+    }
+
+    /** Packed row * cols + col of the tile under (x, y), or -1. */
+    int hitTest(double x, double y) {
+        int c = (int) (x / tile);
+        int r = (int) (y / tile);
+        if (x < 0 || y < 0 || r >= rows || c >= cols)
+            return -1;
+        return r * cols + c;
+    }
+
+    // ======================================================================
+    // TILE LAYER
+    // ======================================================================
+
+    /** Redraws every tile. */
+    void drawBoard(int[][] board) {
+        GraphicsContext g = base.getGraphicsContext2D();
+        g.clearRect(0, 0, base.getWidth(), base.getHeight());
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++)
+                drawTile(g, r, c, board[r][c]);
+    }
+
+    /** Redraws one tile. */
+    void drawTile(int r, int c, int value) {
+        drawTile(base.getGraphicsContext2D(), r, c, value);
+    }
+
+    private void drawTile(GraphicsContext g, int r, int c, int value) {
+        double x = c * tile, y = r * tile;
+        double gap = tile >= 12 ? 2 : 0;
+        double size = tile - gap;
+
+        g.clearRect(x, y, tile, tile);
+        g.setFill(value == 1 ? WHITE_TILE : BLACK_TILE);
+        if (tile >= 12) {
+            g.fillRoundRect(x + gap / 2, y + gap / 2, size, size, 6, 6);
+            g.setStroke(value == 1 ? WHITE_BORDER : BLACK_BORDER);
+            g.setLineWidth(1);
+            g.strokeRoundRect(x + gap / 2 + 0.5, y + gap / 2 + 0.5, size - 1, size - 1, 6, 6);
+        } else {
+            g.fillRect(x, y, tile, tile);
+        }
+
+        // Same marks as the Button tiles: filled dot on white, ring on black
+        if (tile >= 20) {
+            double d = tile / 4;
+            double cx = x + tile / 2 - d / 2, cy = y + tile / 2 - d / 2;
+            if (value == 1) {
+                g.setFill(BLACK_TILE);
+                g.fillOval(cx, cy, d, d);
+            } else {
+                g.setStroke(WHITE_TILE);
+                g.setLineWidth(1.5);
+                g.strokeOval(cx, cy, d, d);
+            }
+        }
+    }
+
+    // ======================================================================
+    // OVERLAY LAYER
+    // ======================================================================
+
+    void setRegion(int r1, int r2, int c1, int c2, Color color) {
+        region = new int[]{r1, r2, c1, c2};
+        regionColor = color;
+        drawOverlay();
+    }
+
+    void setHintRegion(int r1, int r2, int c1, int c2, Color color) {
+        hintRegion = new int[]{r1, r2, c1, c2};
+        hintColor = color;
+        drawOverlay();
+    }
+
+    void clearHintRegion() {
+        hintRegion = null;
+        drawOverlay();
+    }
+
+    void highlight(int r, int c, Color color) {
+        highlights.put(r * cols + c, color);
+        drawOverlay();
+    }
+
+    void setMarker(int r, int c, Color color) {
+        marker = r * cols + c;
+        markerColor = color;
+        drawOverlay();
+    }
+
+    void clearMarker() {
+        marker = -1;
+        drawOverlay();
+    }
+
+    /** Blinks a border on the tile twice, like the Button renderer's hint flash. */
+    void flash(int r, int c, Color color) {
+        Timeline blink = new Timeline(
+            new KeyFrame(Duration.ZERO, e -> setFlash(r * cols + c, color)),
+            new KeyFrame(Duration.millis(300), e -> setFlash(-1, null)),
+            new KeyFrame(Duration.millis(600), e -> setFlash(r * cols + c, color)),
+            new KeyFrame(Duration.millis(900), e -> setFlash(-1, null))
+        );
+        blink.play();
+    }
+
+    private void setFlash(int cell, Color color) {
+        flashCell = cell;
+        flashColor = color;
+        drawOverlay();
+    }
+
+    /** Drops the region and move highlights (what a full Button restyle used to reset). */
+    void clearTransient() {
+        region = null;
+        highlights.clear();
+        drawOverlay();
+    }
+
+    private void drawOverlay() {
+        GraphicsContext g = overlay.getGraphicsContext2D();
+        g.clearRect(0, 0, overlay.getWidth(), overlay.getHeight());
+        double width = Math.max(1, Math.min(3, tile / 8));
+        g.setLineWidth(width);
+
+        if (region != null)
+            strokeRegion(g, region, regionColor);
+        if (hintRegion != null)
+            strokeRegion(g, hintRegion, hintColor);
+        for (Map.Entry<Integer, Color> h : highlights.entrySet())
+            strokeCell(g, h.getKey(), h.getValue());
+        if (marker >= 0)
+            strokeCell(g, marker, markerColor);
+        if (flashCell >= 0)
+            strokeCell(g, flashCell, flashColor);
+        if (hover >= 0 && hoverColor != null)
+            strokeCell(g, hover, hoverColor);
+    }
+
+    private void strokeRegion(GraphicsContext g, int[] rect, Color color) {
+        double inset = g.getLineWidth() / 2;
+        g.setStroke(color);
+        g.strokeRect(rect[2] * tile + inset, rect[0] * tile + inset,
+                     (rect[3] - rect[2] + 1) * tile - 2 * inset,
+                     (rect[1] - rect[0] + 1) * tile - 2 * inset);
+    }
+
+    private void strokeCell(GraphicsContext g, int cell, Color color) {
+        double inset = g.getLineWidth() / 2;
+        g.setStroke(color);
+        g.strokeRect((cell % cols) * tile + inset, (cell / cols) * tile + inset,
+                     tile - 2 * inset, tile - 2 * inset);
+    }
+}
@@ -0,0 +1,221 @@
+package pck;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Light-chasing transfer matrix of a height x width region.
+ *
+ * Chasing a region turns every row white except the bottom one. What is left
+ * on the bottom row is linear in the first-row presses x over GF(2):
+ *
+ *     residual(x) = residual(0) + A * x
+ *
+ * so the region is solvable exactly when A * x = residual(0) has a solution.
+ * Column j of A is the bottom row left by pressing only first-row cell j of an
+ * empty region and chasing it down. It depends on the shape, not the board,
+ * so one table per (height, width) is built and cached.
+ */
+public class ChaseTransfer {
+
+    private static final Map<Long, ChaseTransfer> CACHE = new ConcurrentHashMap<>();
+
+    final int height;
+    final int width;
+    final BitMatrix matrix;   // width x width, rows = bottom-row cells, cols = first-row presses
+
+    // Pseudo-inverse: rowOps * A is in reduced row echelon form with pivot
+    // column pivots[i] in row i. Rows rank..width-1 of rowOps are the
+    // consistency checks (they annihilate A).
+    final BitMatrix rowOps;
+    final int[] pivots;
+
+    // Null space of A in echelon form by highest bit, leads descending
+    final long[][] kernel;
+    final int[] kernelLeads;
+
+    // Full region press pattern (row-major, `stride` longs per row) that each
+    // kernel vector produces when chased. Pressing one of these changes nothing.
+    final int stride;
+    final long[][] nullPresses;
+
+    /** Cached table for the shape, built on first use. */
+    static ChaseTransfer forShape(int height, int width) {
+        return CACHE.computeIfAbsent(key(height, width), k -> new ChaseTransfer(height, width));
+    }
+
+    /** Cached table for the shape, or null if it has not been built or loaded yet. */
+    static ChaseTransfer cached(int height, int width) {
+        return CACHE.get(key(height, width));
+    }
+
+    /** Caches a table read back by {@link ArtifactStore}; one already cached wins. */
+    static ChaseTransfer install(ChaseTransfer transfer) {
+        ChaseTransfer prev = CACHE.putIfAbsent(key(transfer.height, transfer.width), transfer);
+        return prev != null ? prev : transfer;
+    }
+
+    private static long key(int height, int width) {
+        return ((long) height << 32) | width;
+    }
+
+    /** Table from stored parts (see {@link ArtifactStore}); nothing is recomputed. */
+    ChaseTransfer(int height, int width, BitMatrix matrix, BitMatrix rowOps, int[] pivots,
+                  long[][] kernel, int[] kernelLeads, long[][] nullPresses) {
+        this.height = height;
+        this.width = width;
+        this.matrix = matrix;
+        this.rowOps = rowOps;
+        this.pivots = pivots;
+        this.kernel = kernel;
+        this.kernelLeads = kernelLeads;
+        this.stride = (width + 63) >>> 6;
+        this.nullPresses = nullPresses;
+    }
+
+    ChaseTransfer(int height, int width) {
+        this.height = height;
+        this.width = width;
+        this.matrix = new BitMatrix(width, width);
+
+        BitBoard empty = new BitBoard(height, width);
+        long[] column = new long[(width + 63) >>> 6];
+
+        for (int j = 0; j < width; j++) {
+            Arrays.fill(empty.bits, 0L);
+            empty.press(0, j);
+            empty.chase(0, height - 1, 0, width - 1, null);
+            empty.readRow(height - 1, 0, width, column);
+
+            for (int i = 0; i < width; i++)
+                if ((column[i >>> 6] & (1L << i)) != 0)
+                    matrix.set(i, j);
+        }
+
+        // Reduce [A | I]; the right half records the row operations. Wide
+        // regions go through BitMatrix's Four Russians path.
+        BitMatrix aug = new BitMatrix(width, 2 * width);
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < width; j++)
+                if (matrix.get(i, j))
+                    aug.set(i, j);
+            aug.set(i, width + i);
+        }
+        this.pivots = aug.reduce(width);
+
+        this.rowOps = new BitMatrix(width, width);
+        for (int i = 0; i < width; i++)
+            for (int j = 0; j < width; j++)
+                if (aug.get(i, width + j))
+                    rowOps.set(i, j);
+
+        List<long[]> nullSpace = matrix.nullSpace();
+        List<long[]> basis = new ArrayList<>();
+        List<Integer> leads = new ArrayList<>();
+        for (long[] v : nullSpace) {
+            long[] u = v.clone();
+            for (int i = 0; i < basis.size(); i++)
+                if (testBit(u, leads.get(i)))
+                    xorInto(u, basis.get(i));
+            int lead = highestBit(u);
+            if (lead < 0)
+                continue;
+
+            // Keep leads in descending order
+            int at = 0;
+            while (at < leads.size() && leads.get(at) > lead)
+                at++;
+            basis.add(at, u);
+            leads.add(at, lead);
+        }
+        this.kernel = basis.toArray(new long[0][]);
+        this.kernelLeads = leads.stream().mapToInt(Integer::intValue).toArray();
+
+        this.stride = (width + 63) >>> 6;
+        this.nullPresses = new long[kernel.length][];
+        for (int k = 0; k < kernel.length; k++) {
+            Arrays.fill(empty.bits, 0L);
+            List<int[]> moves = new ArrayList<>();
+            for (int col = 0; col < width; col++) {
+                if (testBit(kernel[k], col)) {
+                    empty.press(0, col);
+                    moves.add(new int[]{0, col});
+                }
+            }
+            empty.chase(0, height - 1, 0, width - 1, moves);
+            nullPresses[k] = pressPattern(moves, 0, 0);
+        }
+    }
+
+    /** Moves (shifted by r1, c1) as a row-major press pattern of this shape. */
+    long[] pressPattern(List<int[]> moves, int r1, int c1) {
+        long[] pattern = new long[height * stride];
+        for (int[] m : moves) {
+            int c = m[1] - c1;
+            pattern[(m[0] - r1) * stride + (c >>> 6)] ^= 1L << c;
+        }
+        return pattern;
+    }
+
+    int rank() {
+        return pivots.length;
+    }
+
+    // ==========================================
+    // SOLVE: one matrix-vector product + kernel reduction
+    // ==========================================
+    /**
+     * First-row presses that clear {@code residual} (the bottom row left by
+     * chasing with no first-row presses), or null if none exist. Among all
+     * solutions this returns the lowest mask, i.e. the one the first-row
+     * enumeration would reach first.
+     */
+    long[] firstRow(long[] residual) {
+        int n = (width + 63) >>> 6;
+        long[] x = new long[n];
+        return firstRow(residual, new long[n], x) ? x : null;
+    }
+
+    /**
+     * Allocation-free form of {@link #firstRow(long[])}: {@code y} is scratch,
+     * the solution goes to {@code x}. Returns false when there is none.
+     */
+    boolean firstRow(long[] residual, long[] y, long[] x) {
+        rowOps.multiply(residual, y);
+
+        // Rows past the rank must vanish for the system to be consistent
+        for (int i = pivots.length; i < width; i++)
+            if (testBit(y, i))
+                return false;
+
+        Arrays.fill(x, 0L);
+        for (int i = 0; i < pivots.length; i++)
+            if (testBit(y, i))
+                x[pivots[i] >>> 6] |= 1L << pivots[i];
+        lowestMask(x);
+        return true;
+    }
+
+    /** Smallest mask (as a binary number) in x + null space. */
+    long[] lowestMask(long[] x) {
+        for (int i = 0; i < kernel.length; i++)
+            if (testBit(x, kernelLeads[i]))
+                xorInto(x, kernel[i]);
+        return x;
+    }
+
+    static boolean testBit(long[] v, int bit) {
+        return (v[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    static void xorInto(long[] dst, long[] src) {
+        for (int w = 0; w < src.length; w++)
+            dst[w] ^= src[w];
+    }
+
+    static int highestBit(long[] v) {
+        for (int w = v.length - 1; w >= 0; w--)
+            if (v[w] != 0)
+                return (w << 6) + 63 - Long.numberOfLeadingZeros(v[w]);
+        return -1;
+    }
+}
@@ -0,0 +1,212 @@
+package pck;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Region solver that finds the first-row presses with polynomial arithmetic
+ * instead of a width x width matrix.
+ *
+ * Pressing row vectors of width w acts through B = I + P, where P is the
+ * adjacency matrix of the w-node path. Chasing a height h region leaves a
+ * bottom-row residual of residual(0) + F_{h+1}(B) x for first-row presses x,
+ * with F_0 = 0, F_1 = 1, F_{k+1} = t F_k + F_{k-1}. Row vectors are a cyclic
+ * module over GF(2)[P], generated by e_1, and P satisfies its characteristic
+ * polynomial U_w (see {@link BitPolynomial#chebyshevU}). So vector v is the
+ * polynomial V with V(P) e_1 = v, and the system F_{h+1}(1 + P) x = r is
+ *
+ *     f(t) X(t) = R(t)   (mod U_w),   f(t) = F_{h+1}(1 + t)
+ *
+ * which one extended gcd per shape reduces to multiplications: with
+ * g = gcd(f, U_w) and s f = g, a solution exists iff g divides R, and then
+ * X = s R / g. Every step is O(w^2 / 64) word operations (O(h^2 / 64) to
+ * build f), against O(w^3 / 64) to eliminate the transfer matrix. There is
+ * no matrix to store, so very wide regions fit in memory.
+ *
+ * On shapes with a null space this returns a solution, but not necessarily
+ * the lowest first-row mask that ELIMINATION returns.
+ */
+public class ChebyshevSolver {
+
+    private static final Map<Long, ChebyshevSolver> CACHE = new ConcurrentHashMap<>();
+
+    final int height;
+    final int width;
+
+    private final long[] modulus;   // U_width
+    private final long[] gcd;       // gcd(f, U_width)
+    private final long[] inverse;   // s with s f = gcd (mod U_width)
+
+    /** Cached solver for the shape, built on first use. */
+    static ChebyshevSolver forShape(int height, int width) {
+        long key = ((long) height << 32) | width;
+        return CACHE.computeIfAbsent(key, k -> new ChebyshevSolver(height, width));
+    }
+
+    ChebyshevSolver(int height, int width) {
+        this.height = height;
+        this.width = width;
+        this.modulus = BitPolynomial.chebyshevU(width);
+
+        // f = F_{height+1}(1 + t): F_{k+1} = (1 + t) F_k + F_{k-1}
+        long[] prev = BitPolynomial.zero(height + 1), cur = BitPolynomial.zero(height + 1);
+        cur[0] = 1;
+        for (int k = 1; k <= height; k++) {
+            long[] next = prev;   // reuse F_{k-1}'s array: next = F_{k-1} + F_k + t F_k
+            BitPolynomial.xorShifted(next, cur, k - 1, 0);
+            BitPolynomial.xorShifted(next, cur, k - 1, 1);
+            prev = cur;
+            cur = next;
+        }
+
+        long[][] gs = BitPolynomial.gcdExtended(BitPolynomial.mod(cur, modulus), modulus);
+        this.gcd = gs[0];
+        this.inverse = gs[1];
+    }
+
+    /** Dimension of the null space of the shape's press matrix. */
+    int nullity() {
+        return BitPolynomial.degree(gcd);
+    }
+
+    // ==========================================
+    // FIRST ROW
+    // ==========================================
+    /**
+     * First-row presses (bit j = column j) that clear {@code residual}, the
+     * bottom row left by chasing with no first-row presses, or null if none
+     * exist.
+     */
+    long[] firstRow(long[] residual) {
+        long[] r = toPolynomial(residual);
+
+        long[][] qr = BitPolynomial.divide(r, gcd);
+        if (!BitPolynomial.isZero(qr[1]))
+            return null;
+
+        long[] x = BitPolynomial.mod(BitPolynomial.multiply(inverse, qr[0]), modulus);
+        return toVector(x);
+    }
+
+    /** R with R(P) e_1 = v: the sum of U_j over the set bits j of v. */
+    private long[] toPolynomial(long[] v) {
+        long[] r = BitPolynomial.zero(width);
+        long[] prev = BitPolynomial.zero(width + 1), cur = BitPolynomial.zero(width + 1);
+        cur[0] = 1;                                       // U_0
+        for (int j = 0; j < width; j++) {
+            if (ChaseTransfer.testBit(v, j))
+                BitPolynomial.xorShifted(r, cur, j, 0);
+            // prev = U_{j+1} = t U_j + U_{j-1}, then swap
+            BitPolynomial.xorShifted(prev, cur, j, 1);
+            long[] t = prev; prev = cur; cur = t;
+        }
+        return r;
+    }
+
+    /** X(P) e_1 by Horner's rule; P v is (v << 1) ^ (v >>> 1) within the row. */
+    private long[] toVector(long[] x) {
+        int words = (width + 63) >>> 6;
+        long lastMask = (width & 63) == 0 ? -1L : (1L << (width & 63)) - 1;
+        long[] v = new long[words], next = new long[words];
+
+        for (int k = BitPolynomial.degree(x); k >= 0; k--) {
+            for (int w = 0; w < words; w++) {
+                long up = w > 0 ? v[w - 1] >>> 63 : 0L;
+                long down = w + 1 < words ? v[w + 1] << 63 : 0L;
+                next[w] = (v[w] << 1) ^ up ^ (v[w] >>> 1) ^ down;
+            }
+            next[words - 1] &= lastMask;
+            long[] t = v; v = next; next = t;
+            if (BitPolynomial.testBit(x, k))
+                v[0] ^= 1L;
+        }
+        return v;
+    }
+
+    // ==========================================
+    // REGION SOLVE
+    // ==========================================
+    /**
+     * Press set that turns the region white, as a board-sized bit set (set
+     * bit = press), or null if the region cannot be solved in isolation. The
+     * board is not changed.
+     */
+    BitBoard presses(BitBoard board, int r1, int c1) {
+        int r2 = r1 + height - 1, c2 = c1 + width - 1;
+        BitBoard temp = board.copy();
+        BitBoard presses = new BitBoard(board.rows, board.cols);
+
+        // Chase, clear the residual with the first row, chase again
+        temp.chaseInto(r1, r2, c1, c2, presses);
+        long[] residual = new long[(width + 63) >>> 6];
+        temp.readRow(r2, c1, width, residual);
+
+        long[] x = firstRow(residual);
+        if (x == null)
+            return null;
+        temp.pressRow(r1, c1, width, x);
+        presses.xorRow(r1, c1, width, x);
+        temp.chaseInto(r1, r2, c1, c2, presses);
+        return presses;
+    }
+
+    /** Presses that turn the region white, row by row, or null. */
+    static List<int[]> solve(BitBoard board,
+                             int r1, int r2,
+                             int c1, int c2) {
+
+        BitBoard presses = forShape(r2 - r1 + 1, c2 - c1 + 1).presses(board, r1, c1);
+        if (presses == null)
+            return null;
+
+        List<int[]> moves = new ArrayList<>();
+        for (int r = r1; r <= r2; r++)
+            for (int w = c1 >>> 6; w <= c2 >>> 6; w++)
+                for (long p = presses.bits[r * presses.words + w]; p != 0; p &= p - 1)
+                    moves.add(new int[]{r, (w << 6) + Long.numberOfTrailingZeros(p)});
+        return moves;
+    }
+
+    // ==========================================
+    // LARGE BOARD TIMING
+    // ==========================================
+    /** Usage: ChebyshevSolver [size,...] -- solves one random board per size. */
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[] {1000, 2000, 5000, 10000};
+
+        for (int n : sizes) {
+            BitBoard board = new BitBoard(n, n);
+            SplittableRandom random = new SplittableRandom(n);
+            for (int i = 0; i < board.bits.length; i++)
+                board.bits[i] = random.nextLong();
+            for (int r = 0; r < n; r++)
+                board.bits[r * board.words + board.words - 1] &= board.lastMask;
+
+            long t0 = System.nanoTime();
+            ChebyshevSolver solver = forShape(n, n);
+            long t1 = System.nanoTime();
+            BitBoard presses = solver.presses(board, 0, 0);
+            long t2 = System.nanoTime();
+
+            String result;
+            if (presses == null) {
+                result = "no solution (nullity " + solver.nullity() + ")";
+            } else {
+                // Check by replaying the press set row by row
+                BitBoard check = board.copy();
+                long[] row = new long[board.words];
+                long count = 0;
+                for (int r = 0; r < n; r++) {
+                    System.arraycopy(presses.bits, r * board.words, row, 0, board.words);
+                    check.pressRow(r, 0, n, row);
+                    for (long word : row)
+                        count += Long.bitCount(word);
+                }
+                result = count + " presses, " + (check.isAllWhite() ? "solved" : "NOT SOLVED");
+            }
+            System.out.printf("%dx%d: setup %.0f ms, solve %.0f ms, %s%n",
+                    n, n, (t1 - t0) / 1e6, (t2 - t1) / 1e6, result);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package pck;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * Exact full-board solver by domain decomposition over GF(2).
+ *
+ * The board is cut by one seam row and one seam column into four interior
+ * rectangles. Interior presses only reach their own interior and the seams,
+ * so with the seam presses fixed the four interiors are independent problems
+ * and are solved in parallel. Choosing the seam presses is a small system of
+ * (rows + cols - 1) unknowns: its matrix M (the Schur complement of the
+ * interiors) says which seam cells end up black after pressing one seam cell
+ * and re-solving the interiors. A board is then solved in three steps:
+ *
+ *     1. solve the interiors              -> seams hold a residual r
+ *     2. press the seam cells x, M x = r
+ *     3. solve the interiors again        -> interiors and seams are white
+ *
+ * Seams are placed near the middle, moved a few cells if an interior shape
+ * has a singular press matrix, since the interiors must have unique
+ * solutions. Interiors at least RECURSE_SIDE on both sides are split the
+ * same way. M and its row operations are built once per shape and cached. If
+ * no seam placement works, the board is solved in one piece by elimination.
+ *
+ * The presses come back grouped like the structured plan of
+ * {@link SolverContext#regions}: interior presses are the four squares, the
+ * seam column joins the two squares of each half, and the seam row joins the
+ * halves into the full board. Presses commute, so applying all phases in any
+ * order solves the board.
+ */
+public class DecompositionSolver {
+
+    static final int RECURSE_SIDE = 192;        // interiors this big are split again
+    static final int PARALLEL_CELLS = 32 * 32;  // smaller interiors stay on the calling thread
+    private static final int SEAM_SEARCH = 6;   // seam offsets tried either side of the middle
+
+    private static final Map<Long, Node> CACHE = new ConcurrentHashMap<>();
+
+    // ==========================================
+    // ENTRY POINTS
+    // ==========================================
+    /**
+     * Presses that turn the board (1=White, 0=Black) white, in seven phases
+     * in the order of {@link SolverContext#regions}, or null if the board
+     * cannot be solved.
+     */
+    static List<List<int[]>> solvePhases(int[][] board) {
+        BitBoard b = BitBoard.fromArray(board);
+        Node node = node(b.rows, b.cols, true);
+
+        BitBoard presses = new BitBoard(b.rows, b.cols);
+        if (!node.solve(b, 0, 0, presses, true))
+            return null;
+
+        List<List<int[]>> phases = new ArrayList<>();
+        for (int i = 0; i < 7; i++)
+            phases.add(new ArrayList<>());
+        for (int r = 0; r < b.rows; r++)
+            for (int w = 0; w < b.words; w++)
+                for (long p = presses.bits[r * b.words + w]; p != 0; p &= p - 1) {
+                    int c = (w << 6) + Long.numberOfTrailingZeros(p);
+                    phases.get(node.phase(r, c)).add(new int[]{r, c});
+                }
+        return phases;
+    }
+
+    /** All presses of {@link #solvePhases}, phase by phase, or null. */
+    static List<int[]> solve(int[][] board) {
+        List<List<int[]>> phases = solvePhases(board);
+        if (phases == null)
+            return null;
+        List<int[]> moves = new ArrayList<>();
+        for (List<int[]> phase : phases)
+            moves.addAll(phase);
+        return moves;
+    }
+
+    /** Cached plan for the shape. {@code top} splits any board of 3x3 or more. */
+    private static Node node(int height, int width, boolean top) {
+        long key = ((long) height << 33) | ((long) width << 1) | (top ? 1 : 0);
+        Node node = CACHE.get(key);
+        if (node == null) {
+            // Not computeIfAbsent: building a node builds its children
+            node = new Node(height, width, top ? 3 : RECURSE_SIDE);
+            Node raced = CACHE.putIfAbsent(key, node);
+            if (raced != null)
+                node = raced;
+        }
+        return node;
+    }
+
+    /** True if every pattern on the shape is reachable, i.e. solutions are unique. */
+    private static boolean invertible(int height, int width) {
+        return ChaseTransfer.forShape(height, width).rank() == width;
+    }
+
+    // ==========================================
+    // ONE LEVEL OF THE DECOMPOSITION
+    // ==========================================
+    private static final class Node {
+
+        final int height;
+        final int width;
+
+        // Seam row / column in local coordinates; -1 for a leaf
+        final int seamRow;
+        final int seamCol;
+
+        // Interiors TL, TR, BL, BR and their local offsets
+        final Node[] children;
+        final int[] childRow;
+        final int[] childCol;
+
+        // Seam system: rowOps * M is in reduced row echelon form, with pivot
+        // column pivots[i] in row i; rows rank.. of rowOps are consistency checks
+        final int seams;
+        final BitMatrix rowOps;
+        final int[] pivots;
+
+        Node(int height, int width, int minSide) {
+            this.height = height;
+            this.width = width;
+
+            int[] seam = height >= minSide && width >= minSide ? chooseSeams(height, width) : null;
+            if (seam == null) {
+                this.seamRow = this.seamCol = -1;
+                this.children = null;
+                this.childRow = this.childCol = null;
+                this.seams = 0;
+                this.rowOps = null;
+                this.pivots = null;
+                return;
+            }
+
+            this.seamRow = seam[0];
+            this.seamCol = seam[1];
+            this.childRow = new int[] {0, 0, seamRow + 1, seamRow + 1};
+            this.childCol = new int[] {0, seamCol + 1, 0, seamCol + 1};
+            int top = seamRow, bottom = height - seamRow - 1;
+            int left = seamCol, right = width - seamCol - 1;
+            this.children = new Node[] {
+                node(top, left, false), node(top, right, false),
+                node(bottom, left, false), node(bottom, right, false)
+            };
+
+            // Column k of M: seam state after pressing seam cell k on a white
+            // board and re-solving the interiors
+            this.seams = height + width - 1;
+            long[][] columns = IntStream.range(0, seams).parallel().mapToObj(k -> {
+                BitBoard b = new BitBoard(height, width);
+                BitBoard presses = new BitBoard(height, width);
+                pressSeam(b, 0, 0, k);
+                solveChildren(b, 0, 0, presses, false);
+                return readSeams(b, 0, 0);
+            }).toArray(long[][]::new);
+
+            // Reduce [M | I]; the right half records the row operations
+            BitMatrix aug = new BitMatrix(seams, 2 * seams);
+            for (int k = 0; k < seams; k++)
+                for (int i = 0; i < seams; i++)
+                    if (ChaseTransfer.testBit(columns[k], i))
+                        aug.set(i, k);
+            for (int i = 0; i < seams; i++)
+                aug.set(i, seams + i);
+            this.pivots = aug.reduce(seams);
+
+            this.rowOps = new BitMatrix(seams, seams);
+            for (int i = 0; i < seams; i++)
+                for (int j = 0; j < seams; j++)
+                    if (aug.get(i, seams + j))
+                        rowOps.set(i, j);
+        }
+
+        /**
+         * Seam row and column nearest the middle whose four interiors all
+         * have unique solutions, or null if none is within SEAM_SEARCH.
+         */
+        private static int[] chooseSeams(int height, int width) {
+            for (int dist = 0; dist <= 2 * SEAM_SEARCH; dist++) {
+                for (int dr = -SEAM_SEARCH; dr <= SEAM_SEARCH; dr++) {
+                    int dc = dist - Math.abs(dr);
+                    if (dc < 0 || dc > SEAM_SEARCH)
+                        continue;
+                    for (int sign = 1; sign >= (dc == 0 ? 1 : -1); sign -= 2) {
+                        int sr = height / 2 + dr, sc = width / 2 + sign * dc;
+                        if (sr < 1 || sr > height - 2 || sc < 1 || sc > width - 2)
+                            continue;
+                        int bottom = height - sr - 1, right = width - sc - 1;
+                        if (invertible(sr, sc) && invertible(sr, right)
+                                && invertible(bottom, sc) && invertible(bottom, right))
+                            return new int[] {sr, sc};
+                    }
+                }
+            }
+            return null;
+        }
+
+        // ----- Solving -----
+
+        /**
+         * Turns the height x width region at (r0, c0) of {@code board} white,
+         * pressing on the board and toggling each press in {@code presses}.
+         * Presses may change cells outside the region. False if unsolvable.
+         */
+        boolean solve(BitBoard board, int r0, int c0, BitBoard presses, boolean parallel) {
+            int r2 = r0 + height - 1, c2 = c0 + width - 1;
+            if (board.isRegionWhite(r0, r2, c0, c2))
+                return true;
+            if (seamRow < 0)
+                return solveLeaf(board, r0, c0, presses);
+
+            solveChildren(board, r0, c0, presses, parallel);
+
+            long[] x = seamPresses(readSeams(board, r0, c0));
+            if (x == null)
+                return false;
+            for (int k = 0; k < seams; k++)
+                if (ChaseTransfer.testBit(x, k)) {
+                    pressSeam(board, r0, c0, k);
+                    toggleSeam(presses, r0, c0, k);
+                }
+
+            solveChildren(board, r0, c0, presses, parallel);
+            return true;
+        }
+
+        /**
+         * Chase, clear the residual with first-row presses, chase again. The
+         * second chase starts from white rows, so it leaves exactly the
+         * residual plus the first-row presses' effect: white.
+         */
+        private boolean solveLeaf(BitBoard board, int r0, int c0, BitBoard presses) {
+            int r2 = r0 + height - 1, c2 = c0 + width - 1;
+            ChaseTransfer transfer = ChaseTransfer.forShape(height, width);
+
+            board.chaseInto(r0, r2, c0, c2, presses);
+            long[] residual = new long[(width + 63) >>> 6];
+            long[] y = new long[residual.length], x = new long[residual.length];
+            board.readRow(r2, c0, width, residual);
+            if (!transfer.firstRow(residual, y, x))
+                return false;
+
+            for (int j = 0; j < width; j++)
+                if (ChaseTransfer.testBit(x, j)) {
+                    board.press(r0, c0 + j);
+                    presses.toggle(r0, c0 + j);
+                }
+            board.chaseInto(r0, r2, c0, c2, presses);
+            return true;
+        }
+
+        /** Solves the four interiors; they have unique solutions, so this cannot fail. */
+        private void solveChildren(BitBoard board, int r0, int c0, BitBoard presses, boolean parallel) {
+            if (!parallel || children[0].height * children[0].width < PARALLEL_CELLS) {
+                for (int i = 0; i < 4; i++)
+                    children[i].solve(board, r0 + childRow[i], c0 + childCol[i], presses, false);
+                return;
+            }
+
+            // Each interior on its own copy, since neighbours share board words
+            List<ForkJoinTask<BitBoard>> tasks = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Node child = children[i];
+                BitBoard local = extract(board, r0 + childRow[i], c0 + childCol[i], child.height, child.width);
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    BitBoard localPresses = new BitBoard(child.height, child.width);
+                    child.solve(local, 0, 0, localPresses, true);
+                    return localPresses;
+                }));
+            }
+            ForkJoinTask.invokeAll(tasks);
+
+            // Replay the presses row by row; this also carries their effect
+            // onto the seams
+            for (int i = 0; i < 4; i++) {
+                BitBoard local = tasks.get(i).join();
+                long[] row = new long[local.words];
+                for (int r = 0; r < local.rows; r++) {
+                    System.arraycopy(local.bits, r * local.words, row, 0, local.words);
+                    board.pressRow(r0 + childRow[i] + r, c0 + childCol[i], local.cols, row);
+                    presses.xorRow(r0 + childRow[i] + r, c0 + childCol[i], local.cols, row);
+                }
+            }
+        }
+
+        /** Seam presses x with M x = residual, or null if there are none. */
+        private long[] seamPresses(long[] residual) {
+            long[] y = rowOps.multiply(residual);
+            for (int i = pivots.length; i < seams; i++)
+                if (ChaseTransfer.testBit(y, i))
+                    return null;
+
+            long[] x = new long[(seams + 63) >>> 6];
+            for (int i = 0; i < pivots.length; i++)
+                if (ChaseTransfer.testBit(y, i))
+                    x[pivots[i] >>> 6] |= 1L << pivots[i];
+            return x;
+        }
+
+        // ----- Seam cells: the seam row first, then the seam column without the crossing -----
+
+        private int seamCellRow(int k) {
+            if (k < width)
+                return seamRow;
+            int i = k - width;
+            return i < seamRow ? i : i + 1;
+        }
+
+        private int seamCellCol(int k) {
+            return k < width ? k : seamCol;
+        }
+
+        private void pressSeam(BitBoard board, int r0, int c0, int k) {
+            board.press(r0 + seamCellRow(k), c0 + seamCellCol(k));
+        }
+
+        private void toggleSeam(BitBoard presses, int r0, int c0, int k) {
+            presses.toggle(r0 + seamCellRow(k), c0 + seamCellCol(k));
+        }
+
+        /** Black seam cells as a vector over the seam index. */
+        private long[] readSeams(BitBoard board, int r0, int c0) {
+            long[] v = new long[(seams + 63) >>> 6];
+            for (int k = 0; k < seams; k++)
+                if (!board.isWhite(r0 + seamCellRow(k), c0 + seamCellCol(k)))
+                    v[k >>> 6] |= 1L << k;
+            return v;
+        }
+
+        // ----- Phases -----
+
+        /** Index in SolverContext.regions of the phase a press at (r, c) belongs to. */
+        int phase(int r, int c) {
+            if (seamRow < 0 || r == seamRow)
+                return 6;
+            if (c == seamCol)
+                return r < seamRow ? 4 : 5;
+            return (r < seamRow ? 0 : 2) + (c < seamCol ? 0 : 1);
+        }
+    }
+
+    /** Copy of a height x width region of {@code board} as its own board. */
+    private static BitBoard extract(BitBoard board, int r0, int c0, int height, int width) {
+        BitBoard local = new BitBoard(height, width);
+        long[] row = new long[local.words];
+        for (int r = 0; r < height; r++) {
+            board.readRow(r0 + r, c0, width, row);
+            System.arraycopy(row, 0, local.bits, r * local.words, local.words);
+        }
+        return local;
+    }
+}
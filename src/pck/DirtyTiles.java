@@ -0,0 +1,174 @@
+package pck;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.paint.Color;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Tracks which tiles need repainting and the overlay state of every tile.
+ *
+ * Presses and highlight changes only mark tiles dirty; the repaint callback
+ * runs once per dirty tile on the next pulse, so a tile touched by a press,
+ * a move highlight and a flash in the same frame is restyled once, from its
+ * final state. Overlays are per-tile flags, and each flag remembers the
+ * tiles it is set on, so clearing it costs as much as setting it did.
+ */
+public class DirtyTiles {
+
+    // Overlay flags
+    static final int HOVER = 1;
+    static final int REGION = 1 << 1;
+    static final int HINT = 1 << 2;
+    static final int MOVE = 1 << 3;
+    static final int LAST_MOVE = 1 << 4;
+    static final int FLASH = 1 << 5;
+    private static final int FLAG_COUNT = 6;
+
+    final int rows;
+    final int cols;
+
+    private final byte[] flags;
+    private final Color[] moveColor;      // border of MOVE tiles
+    private final int[][] flagged;        // cells each flag is set on
+    private final int[] flaggedCount;
+
+    private final long[] dirty;           // one bit per cell
+    private final int[] queue;
+    private int queued;
+
+    private final IntConsumer repaint;    // receives row * cols + col
+    private final AnimationTimer pulse;
+    private boolean scheduled;
+
+    DirtyTiles(int rows, int cols, IntConsumer repaint) {
+        this.rows = rows;
+        this.cols = cols;
+        this.repaint = repaint;
+        int n = rows * cols;
+        this.flags = new byte[n];
+        this.moveColor = new Color[n];
+        this.flagged = new int[FLAG_COUNT][n];
+        this.flaggedCount = new int[FLAG_COUNT];
+        this.dirty = new long[(n + 63) >>> 6];
+        this.queue = new int[n];
+
+        this.pulse = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                flush();
+            }
+        };
+    }
+
+    // ==========================================
+    // DIRTY MARKING
+    // ==========================================
+    void mark(int r, int c) {
+        markCell(r * cols + c);
+    }
+
+    /** Marks the plus-shaped neighbourhood of a press. */
+    void markPress(int r, int c) {
+        mark(r, c);
+        if (r > 0) mark(r - 1, c);
+        if (r < rows - 1) mark(r + 1, c);
+        if (c > 0) mark(r, c - 1);
+        if (c < cols - 1) mark(r, c + 1);
+    }
+
+    /** Marks the cells a press flips under {@code kernel}. */
+    void markPress(FlipKernel kernel, int r, int c) {
+        if (kernel.isPlus()) {
+            markPress(r, c);
+            return;
+        }
+        for (int[] cell : kernel.cells(rows, cols, r, c))
+            mark(cell[0], cell[1]);
+    }
+
+    private void markCell(int cell) {
+        long bit = 1L << cell;
+        if ((dirty[cell >>> 6] & bit) != 0)
+            return;
+        dirty[cell >>> 6] |= bit;
+        queue[queued++] = cell;
+
+        if (!scheduled) {
+            scheduled = true;
+            pulse.start();
+        }
+    }
+
+    /** Repaints every dirty tile now; normally runs on the next pulse. */
+    void flush() {
+        FlipEvents.BoardUpdate event = new FlipEvents.BoardUpdate();
+        event.begin();
+        pulse.stop();
+        scheduled = false;
+        for (int i = 0; i < queued; i++) {
+            int cell = queue[i];
+            dirty[cell >>> 6] &= ~(1L << cell);
+            repaint.accept(cell);
+        }
+        if (event.shouldCommit()) {
+            event.tilesRestyled = queued;
+            event.commit();
+        }
+        queued = 0;
+    }
+
+    /** Drops pending repaints without running them. */
+    void discard() {
+        pulse.stop();
+        scheduled = false;
+        for (int i = 0; i < queued; i++)
+            dirty[queue[i] >>> 6] &= ~(1L << queue[i]);
+        queued = 0;
+    }
+
+    // ==========================================
+    // OVERLAY FLAGS
+    // ==========================================
+    int flags(int r, int c) {
+        return flags[r * cols + c];
+    }
+
+    Color moveColor(int r, int c) {
+        return moveColor[r * cols + c];
+    }
+
+    void set(int flag, int r, int c) {
+        int cell = r * cols + c;
+        if ((flags[cell] & flag) == 0) {
+            int f = Integer.numberOfTrailingZeros(flag);
+            flagged[f][flaggedCount[f]++] = cell;
+            flags[cell] = (byte) (flags[cell] | flag);
+        }
+        markCell(cell);
+    }
+
+    /** Sets MOVE on a tile with the border colour to draw it in. */
+    void setMove(int r, int c, Color color) {
+        moveColor[r * cols + c] = color;
+        set(MOVE, r, c);
+    }
+
+    void setRegion(int flag, int r1, int r2, int c1, int c2) {
+        for (int r = r1; r <= r2; r++)
+            for (int c = c1; c <= c2; c++)
+                set(flag, r, c);
+    }
+
+    /** Removes the flag from every tile that has it. */
+    void clear(int flag) {
+        int f = Integer.numberOfTrailingZeros(flag);
+        int[] cells = flagged[f];
+        for (int i = 0; i < flaggedCount[f]; i++) {
+            int cell = cells[i];
+            flags[cell] = (byte) (flags[cell] & ~flag);
+            markCell(cell);
+        }
+        flaggedCount[f] = 0;
+    }
+}
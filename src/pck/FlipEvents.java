@@ -0,0 +1,120 @@
+package pck;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.text.ParseException;
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder events for the solvers and the turn pipeline.
+ *
+ * Every event is disabled by default. A disabled event still allocates its
+ * object and costs one {@code shouldCommit()} check. Once C2 has compiled
+ * the caller, the check folds to false and escape analysis removes the
+ * object. Until then, and with {@code -XX:-DoEscapeAnalysis}, every call
+ * allocates it (72 bytes for a RegionSolve). That is why
+ * RegionSearchAllocationCheck measures only after a warm-up. The bundled
+ * {@code flip.jfc} (next to this class) enables the events alongside a
+ * light set of JDK events:
+ *
+ *     java -XX:StartFlightRecording:settings=src/pck/flip.jfc,filename=flip.jfr ...
+ *
+ * or set {@code -Dpck.jfr=flip.jfr} to have {@link #recordIfRequested}
+ * start the same recording from the classpath copy. Open the file in JDK
+ * Mission Control; the events are under "Flip Game".
+ */
+final class FlipEvents {
+
+    private FlipEvents() {
+    }
+
+    @Name("pck.RegionSolve")
+    @Label("Region Solve")
+    @Category({"Flip Game", "Solver"})
+    @Description("One region solved (or found unsolvable) by a region solver")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class RegionSolve extends Event {
+        @Label("Solver") String solver;
+        @Label("Mode") String mode;
+        @Label("Top Row") int r1;
+        @Label("Bottom Row") int r2;
+        @Label("Left Column") int c1;
+        @Label("Right Column") int c2;
+        @Label("Masks Tried")
+        @Description("First-row masks enumerated; 0 for the algebraic modes")
+        long masksTried;
+        @Label("Solved") boolean solved;
+        @Label("Presses") int presses;
+    }
+
+    @Name("pck.ComputerMove")
+    @Label("Computer Move")
+    @Category({"Flip Game", "Turn"})
+    @Description("One computer turn, from the user's move to the computer's press")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class ComputerMove extends Event {
+        @Label("Region Index") int regionIndex;
+        @Label("Phase") String phase;
+        @Label("Search Time") @Timespan long searchTime;
+        @Label("Pause Time")
+        @Description("Time the result waited in the thinking and region-highlight pauses")
+        @Timespan long pauseTime;
+        @Label("Would Solve")
+        @Description("The move would have solved the board, so it was handed to the user")
+        boolean wouldSolve;
+        @Label("Row") int row;
+        @Label("Column") int col;
+    }
+
+    @Name("pck.Undo")
+    @Label("Undo")
+    @Category({"Flip Game", "History"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Undo extends Event {
+        @Label("Moves Undone") int movesUndone;
+        @Label("Presses Replayed") int pressesReplayed;
+        @Label("History Entries") int historyEntries;
+        @Label("Checkpoints") int checkpoints;
+        @Label("Snapshot Size") @DataAmount long snapshotBytes;
+    }
+
+    @Name("pck.BoardUpdate")
+    @Label("Board Update")
+    @Category({"Flip Game", "Rendering"})
+    @Description("One repaint pass over the dirty tiles")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class BoardUpdate extends Event {
+        @Label("Tiles Restyled") int tilesRestyled;
+    }
+
+    // ==========================================
+    // RECORDING
+    // ==========================================
+    /**
+     * Starts a recording with the bundled flip.jfc settings when
+     * {@code -Dpck.jfr=<file>} is set; it is written to that file on exit.
+     */
+    static void recordIfRequested() {
+        String file = System.getProperty("pck.jfr");
+        if (file == null || file.isEmpty())
+            return;
+
+        try (InputStream in = FlipEvents.class.getResourceAsStream("flip.jfc")) {
+            if (in == null)
+                throw new IOException("flip.jfc is not on the classpath");
+            Configuration config = Configuration.create(new InputStreamReader(in, StandardCharsets.UTF_8));
+            Recording recording = new Recording(config);
+            recording.setName("flip");
+            recording.setDestination(Paths.get(file));
+            recording.setToDisk(true);
+            recording.setDumpOnExit(true);
+            recording.start();
+        } catch (IOException | ParseException e) {
+            System.err.println("JFR recording not started: " + e.getMessage());
+        }
+    }
+}
@@ -2,11 +2,13 @@ package pck;
 
 import javafx.animation.*;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.TextInputDialog;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
@@ -14,6 +16,8 @@ import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
 
 public class FlipGameFX extends Application {
     
@@ -24,6 +28,8 @@ public class FlipGameFX extends Application {
     private static int N;                          // Board size (must be even)
     private int[][] board;                          // Current game board
     private Button[][] tiles;                        // UI tile buttons
+    private CanvasBoardView canvasView;              // Canvas renderer for large boards (null when tiles are used)
+    private DirtyTiles dirtyTiles;                   // Tiles to repaint on the next pulse + overlay flags
     private Label statusLabel;                       // Game status display
     private Label moveLabel;                          // Move counter display
     private Label phaseLabel;                         // Current solving phase display
@@ -33,8 +39,15 @@ public class FlipGameFX extends Application {
     private int userMoves = 0;                          // User move count
     private int computerMoves = 0;                       // Computer move count
     private StackPane root;                              // Root container
-    private Stack<GameState> undoStack = new Stack<>();   // Undo history
+    private MoveLog moveLog;                              // Undo / redo history (presses + state deltas)
     private Button undoButton;                            // Reference to undo button (to disable during computer turn)
+    private Button redoButton;                            // Reference to redo button (to disable during computer turn)
+    private RegionSearch regionSearch;                    // Preallocated solver buffers for this board size
+    private IncrementalSolution solution;                 // Full-board solution kept in step with every press, or null
+    private Future<?> tablesReady;                        // This size's solver tables, loaded or built off the FX thread
+    
+    private static final int CANVAS_MIN_SIZE = 32;        // Boards this large are drawn on a Canvas
+    private static final int MAX_CUSTOM_SIZE = 256;       // Largest size the Custom option accepts
     
     // ======================================================================
     // STATE FOR COMPUTER'S PROGRESS THROUGH REGIONS
@@ -45,26 +58,24 @@ public class FlipGameFX extends Application {
     private int currentRegionIndex; // for squares: 0=TL,1=TR,2=BL,3=BR; for halves: 0=top,1=bottom
     
     // ======================================================================
-    // GAME STATE FOR UNDO
+    // GAME STATE FOR UNDO (packed into one long per log entry)
     // ======================================================================
     
-    private static class GameState {
-        int[][] board;
-        int userMoves;
-        int computerMoves;
-        boolean userTurn;
-        Phase currentPhase;
-        int currentRegionIndex;
-        
-        GameState(int[][] board, int userMoves, int computerMoves, boolean userTurn,
-                  Phase currentPhase, int currentRegionIndex) {
-            this.board = copy(board);
-            this.userMoves = userMoves;
-            this.computerMoves = computerMoves;
-            this.userTurn = userTurn;
-            this.currentPhase = currentPhase;
-            this.currentRegionIndex = currentRegionIndex;
-        }
+    // bits 0-7: currentRegionIndex, 8-9: currentPhase, 10: userTurn,
+    // 11-36: computerMoves, 37-63: userMoves
+    private static final long TURN_BIT = 1L << 10;
+    
+    private long packState() {
+        return ((long) userMoves << 37) | ((long) computerMoves << 11)
+             | (userTurn ? TURN_BIT : 0) | ((long) currentPhase.ordinal() << 8) | currentRegionIndex;
+    }
+    
+    private void unpackState(long state) {
+        userMoves = (int) (state >>> 37);
+        computerMoves = (int) ((state >>> 11) & 0x3FFFFFF);
+        userTurn = (state & TURN_BIT) != 0;
+        currentPhase = Phase.values()[(int) ((state >>> 8) & 0x3)];
+        currentRegionIndex = (int) (state & 0xFF);
     }
     
     // ======================================================================
@@ -84,6 +95,10 @@ public class FlipGameFX extends Application {
     private Color PHASE_1_COLOR = Color.rgb(255, 99, 132);   // Pink for squares
     private Color PHASE_2_COLOR = Color.rgb(54, 162, 235);   // Blue for halves
     private Color PHASE_3_COLOR = Color.rgb(255, 206, 86);   // Yellow for full
+    
+    // Tile looks built once: hover, region, last move, hint, flash, ● colour
+    private final TileStyles tileStyles = new TileStyles(
+        ACCENT_COLOR, PHASE_2_COLOR, WARNING_COLOR, PHASE_2_COLOR, WARNING_COLOR, PRIMARY_COLOR);
 
     @Override
     public void start(Stage primaryStage) {
@@ -95,6 +110,13 @@ public class FlipGameFX extends Application {
     // ======================================================================
     
     private void showMainMenu(Stage stage) {
+        cancelSearch();
+        
+        // Load or build the preset sizes' solver tables and JIT the solvers while the menu is up
+        if (KERNEL.isPlus()) {
+            ArtifactStore.warmUpAsync(4, 6, 10);
+        }
+        
         VBox menu = new VBox(30);
         menu.setAlignment(Pos.CENTER);
         menu.setBackground(new Background(new BackgroundFill(
@@ -137,7 +159,7 @@ public class FlipGameFX extends Application {
             "• Turn all tiles to WHITE (1) to win",
             "• Computer solves in phases: squares → halves → full",
             "• Once the computer starts a region, it sticks to it until solved",
-            "• Board size must be even (4×4, 6×6, or 10×10)",
+            "• Board size must be even (4×4, 6×6, 10×10, or custom)",
             "• Undo button lets you take back moves"
         };
         
@@ -160,12 +182,14 @@ public class FlipGameFX extends Application {
         Button easyBtn = createDifficultyButton("Easy", "4×4");
         Button mediumBtn = createDifficultyButton("Medium", "6×6");
         Button hardBtn = createDifficultyButton("Hard", "10×10");
+        Button customBtn = createDifficultyButton("Custom", "up to " + maxCustomSize() + "×" + maxCustomSize());
 
         easyBtn.setOnAction(e -> startGame(stage, 4));
         mediumBtn.setOnAction(e -> startGame(stage, 6));
         hardBtn.setOnAction(e -> startGame(stage, 10));
+        customBtn.setOnAction(e -> askCustomSize(stage));
 
-        difficultyBox.getChildren().addAll(easyBtn, mediumBtn, hardBtn);
+        difficultyBox.getChildren().addAll(easyBtn, mediumBtn, hardBtn, customBtn);
 
         menu.getChildren().addAll(titleBox, rulesCard, selectLabel, difficultyBox);
 
@@ -220,6 +244,36 @@ public class FlipGameFX extends Application {
         return btn;
     }
     
+    /**
+     * Largest size the Custom option accepts: MAX_CUSTOM_SIZE, or for a kernel
+     * that cannot be chased the largest board whose full press system fits
+     * in SolvabilityOracle.MAX_CELLS.
+     */
+    private static int maxCustomSize() {
+        if (KERNEL.isChaseable())
+            return MAX_CUSTOM_SIZE;
+        return Math.min(MAX_CUSTOM_SIZE, (int) Math.sqrt(SolvabilityOracle.MAX_CELLS) & ~1);
+    }
+    
+    private void askCustomSize(Stage stage) {
+        TextInputDialog dialog = new TextInputDialog("32");
+        dialog.setTitle("Custom Board");
+        dialog.setHeaderText("Board size (even, 4 to " + maxCustomSize() + ")");
+        dialog.setContentText("Size:");
+        
+        dialog.showAndWait().ifPresent(text -> {
+            int size;
+            try {
+                size = Integer.parseInt(text.trim());
+            } catch (NumberFormatException ex) {
+                return;
+            }
+            if (size >= 4 && size <= maxCustomSize() && size % 2 == 0) {
+                startGame(stage, size);
+            }
+        });
+    }
+    
     private String toHex(Color color) {
         return String.format("#%02X%02X%02X",
             (int)(color.getRed() * 255),
@@ -232,6 +286,8 @@ public class FlipGameFX extends Application {
     // ======================================================================
     
     private void startGame(Stage stage, int gridSize) {
+        cancelSearch();
+        
         N = gridSize;  // N is always even
         
         // Initialize board with random state
@@ -249,11 +305,27 @@ public class FlipGameFX extends Application {
             flip(board, rand.nextInt(N), rand.nextInt(N));
         }
         
+        // Saved tables for custom sizes; the solution follows once they are in
+        regionSearch = new RegionSearch(N, N);
+        solution = null;
+        if (KERNEL.isPlus()) {
+            int[][] game = board;
+            tablesReady = ArtifactStore.prepareAsync(N, N).thenRun(() -> Platform.runLater(() -> {
+                if (board == game) {
+                    solution = IncrementalSolution.of(board);
+                    updateMoveLabel();
+                }
+            }));
+        } else {
+            tablesReady = CompletableFuture.completedFuture(null);
+        }
+        
         userMoves = 0;
         computerMoves = 0;
         userTurn = true;
         gameActive = true;
-        undoStack.clear();               // Clear old stack
+        Metrics.GAMES_STARTED.increment();
+        moveLog = new MoveLog(BitBoard.fromArray(board), KERNEL);   // Fresh history
         
         // Initialize computer's region progress
         currentPhase = Phase.SQUARES;
@@ -277,7 +349,8 @@ public class FlipGameFX extends Application {
                            "-fx-border-radius: 10;");
         
         Label title = new Label("Flip Game - " + 
-            (N == 4 ? "Easy (4×4)" : N == 6 ? "Medium (6×6)" : "Hard (10×10)"));
+            (N == 4 ? "Easy (4×4)" : N == 6 ? "Medium (6×6)" : N == 10 ? "Hard (10×10)" 
+                     : "Custom (" + N + "×" + N + ")"));
         title.setFont(Font.font("Arial", FontWeight.BOLD, 24));
         title.setTextFill(PRIMARY_COLOR);
         
@@ -310,7 +383,7 @@ public class FlipGameFX extends Application {
         gameGrid.setVgap(5);
         gameGrid.setPadding(new Insets(20));
         
-        int tileSize = Math.max(40, 500 / N);
+        int tileSize = N >= CANVAS_MIN_SIZE ? Math.max(2, 640 / N) : Math.max(40, 500 / N);
         createGameBoard(tileSize);
         
         HBox controlsCard = new HBox(15);
@@ -323,16 +396,18 @@ public class FlipGameFX extends Application {
                              "-fx-border-radius: 10;");
         
         undoButton = createControlButton("Undo", PRIMARY_COLOR);
+        redoButton = createControlButton("Redo", SECONDARY_COLOR);
         Button hintBtn = createControlButton("Hint", SUCCESS_COLOR);
         Button newBtn = createControlButton("New Game", WARNING_COLOR);
         Button menuBtn = createControlButton("Menu", DANGER_COLOR);
         
         undoButton.setOnAction(e -> undoMove());
+        redoButton.setOnAction(e -> redoMove());
         hintBtn.setOnAction(e -> showHint());
         newBtn.setOnAction(e -> startGame(stage, N));
         menuBtn.setOnAction(e -> showMainMenu(stage));
         
-        controlsCard.getChildren().addAll(undoButton, hintBtn, newBtn, menuBtn);
+        controlsCard.getChildren().addAll(undoButton, redoButton, hintBtn, newBtn, menuBtn);
         
         gameContainer.getChildren().addAll(headerCard, gameGrid, controlsCard);
         root.getChildren().add(gameContainer);
@@ -365,6 +440,25 @@ public class FlipGameFX extends Application {
     // ======================================================================
     
     private void createGameBoard(int tileSize) {
+        if (dirtyTiles != null) dirtyTiles.discard();   // The previous board's pending repaints
+        dirtyTiles = new DirtyTiles(N, N, this::repaintTile);
+        
+        if (N >= CANVAS_MIN_SIZE) {
+            // One Canvas instead of N×N Buttons; clicks are hit-tested
+            tiles = null;
+            canvasView = new CanvasBoardView(N, N, tileSize);
+            canvasView.setHover(ACCENT_COLOR, () -> gameActive && userTurn);
+            canvasView.setOnTileClicked((row, col) -> {
+                if (gameActive && userTurn) {
+                    handleUserMove(row, col);
+                }
+            });
+            canvasView.drawBoard(board);
+            gameGrid.add(canvasView, 0, 0);
+            return;
+        }
+        
+        canvasView = null;
         tiles = new Button[N][N];
         
         for (int r = 0; r < N; r++) {
@@ -376,7 +470,7 @@ public class FlipGameFX extends Application {
                 tile.setPrefSize(tileSize, tileSize);
                 tile.setFont(Font.font("Arial", FontWeight.BOLD, 
                     Math.max(14, tileSize / 3)));
-                updateTileStyle(tile, board[r][c], false);
+                tileStyles.apply(tile, board[r][c], 0, null);
                 
                 tile.setOnAction(e -> {
                     if (gameActive && userTurn) {
@@ -385,13 +479,16 @@ public class FlipGameFX extends Application {
                 });
                 
                 tile.setOnMouseEntered(e -> {
+                    dirtyTiles.clear(DirtyTiles.HOVER);
                     if (gameActive && userTurn) {
-                        updateTileStyle(tile, board[row][col], true);
+                        dirtyTiles.set(DirtyTiles.HOVER, row, col);
                     }
                 });
                 
                 tile.setOnMouseExited(e -> {
-                    updateTileStyle(tile, board[row][col], false);
+                    if ((dirtyTiles.flags(row, col) & DirtyTiles.HOVER) != 0) {
+                        dirtyTiles.clear(DirtyTiles.HOVER);
+                    }
                 });
                 
                 tiles[r][c] = tile;
@@ -400,41 +497,35 @@ public class FlipGameFX extends Application {
         }
     }
     
-    private void updateTileStyle(Button tile, int value, boolean hover) {
-        if (value == 1) { // White (ON)
-            tile.setStyle("-fx-background-color: white;" +
-                         "-fx-background-radius: 6;" +
-                         "-fx-border-color: " + (hover ? toHex(ACCENT_COLOR) : "#dee2e6") + ";" +
-                         "-fx-border-width: 2;" +
-                         "-fx-border-radius: 6;");
-            tile.setText("●");
-            tile.setTextFill(PRIMARY_COLOR);
-        } else { // Black (OFF)
-            tile.setStyle("-fx-background-color: #212529;" +
-                         "-fx-background-radius: 6;" +
-                         "-fx-border-color: " + (hover ? toHex(ACCENT_COLOR) : "#495057") + ";" +
-                         "-fx-border-width: 2;" +
-                         "-fx-border-radius: 6;");
-            tile.setText("○");
-            tile.setTextFill(Color.WHITE);
+    /** Repaints one tile (packed row * N + col) from the board and its overlay flags. */
+    private void repaintTile(int cell) {
+        int r = cell / N;
+        int c = cell % N;
+        if (canvasView != null) {
+            canvasView.drawTile(r, c, board[r][c]);
+        } else {
+            tileStyles.apply(tiles[r][c], board[r][c], dirtyTiles.flags(r, c), dirtyTiles.moveColor(r, c));
         }
     }
+    
+    /** Flips a tile and its neighbours and schedules just those tiles for repaint. */
+    private void pressTile(int r, int c) {
+        flip(board, r, c);
+        if (solution != null) {
+            solution.press(r, c);
+        }
+        dirtyTiles.markPress(KERNEL, r, c);
+    }
 
     // ======================================================================
     // GAME LOGIC - FLIP OPERATION
     // ======================================================================
     
+    // Cells a press flips: plus-shaped unless -Dpck.kernel picks another stencil
+    static final FlipKernel KERNEL = FlipKernel.DEFAULT;
+    
     static void flip(int[][] board, int r, int c) {
-        int[] dr = {0, 1, -1, 0, 0};
-        int[] dc = {0, 0, 0, 1, -1};
-
-        for (int i = 0; i < 5; i++) {
-            int nr = r + dr[i];
-            int nc = c + dc[i];
-
-            if (nr >= 0 && nr < N && nc >= 0 && nc < N)
-                board[nr][nc] ^= 1;
-        }
+        KERNEL.flip(board, r, c);
     }
     
     static boolean isAllWhite(int[][] board) {
@@ -467,22 +558,28 @@ public class FlipGameFX extends Application {
     /**
      * Gets the next move for the computer based on the current board state
      * following the structured algorithm: squares → halves → full.
-     * The method now respects the current region state (currentPhase and currentRegionIndex)
-     * so that the computer continues working on the same region until it is solved,
-     * then moves forward.
+     * The method now respects the given region state (phase and regionIndex, taken from
+     * currentPhase and currentRegionIndex) so that the computer continues working on the
+     * same region until it is solved, then moves forward. It touches no fields, so it can
+     * run on a board snapshot off the FX thread; returns null if interrupted.
      */
-    private int[] getNextComputerMove(int[][] board) {
-        int half = N / 2;
+    private static SearchResult getNextComputerMove(int[][] board, Phase phase, int regionIndex,
+                                                    RegionSearch search, IncrementalSolution full) {
+        int n = board.length;
+        int half = n / 2;
         
         while (true) {
-            if (currentPhase == Phase.SQUARES) {
+            if (Thread.currentThread().isInterrupted())
+                return null; // cancelled
+            
+            if (phase == Phase.SQUARES) {
                 // Determine boundaries of the current square
                 int r1, r2, c1, c2;
-                switch (currentRegionIndex) {
+                switch (regionIndex) {
                     case 0: r1 = 0; r2 = half - 1; c1 = 0; c2 = half - 1; break;
-                    case 1: r1 = 0; r2 = half - 1; c1 = half; c2 = N - 1; break;
-                    case 2: r1 = half; r2 = N - 1; c1 = 0; c2 = half - 1; break;
-                    case 3: r1 = half; r2 = N - 1; c1 = half; c2 = N - 1; break;
+                    case 1: r1 = 0; r2 = half - 1; c1 = half; c2 = n - 1; break;
+                    case 2: r1 = half; r2 = n - 1; c1 = 0; c2 = half - 1; break;
+                    case 3: r1 = half; r2 = n - 1; c1 = half; c2 = n - 1; break;
                     default: r1 = 0; r2 = half - 1; c1 = 0; c2 = half - 1; // fallback
                 }
                 
@@ -499,35 +596,35 @@ public class FlipGameFX extends Application {
                 
                 if (solved) {
                     // Move to the next square
-                    currentRegionIndex++;
-                    if (currentRegionIndex > 3) {
-                        currentPhase = Phase.HALVES;
-                        currentRegionIndex = 0;
+                    regionIndex++;
+                    if (regionIndex > 3) {
+                        phase = Phase.HALVES;
+                        regionIndex = 0;
                     }
                     continue; // check the new region
                 }
                 
                 // Try to solve this square
-                int[] move = trySolveRegion(board, r1, r2, c1, c2);
+                int[] move = trySolveRegion(search, board, r1, r2, c1, c2);
                 if (move != null) {
-                    return move;
+                    return new SearchResult(board, move, phase, regionIndex);
                 } else {
                     // Should not happen, but fallback: advance region
-                    currentRegionIndex++;
-                    if (currentRegionIndex > 3) {
-                        currentPhase = Phase.HALVES;
-                        currentRegionIndex = 0;
+                    regionIndex++;
+                    if (regionIndex > 3) {
+                        phase = Phase.HALVES;
+                        regionIndex = 0;
                     }
                     continue;
                 }
                 
-            } else if (currentPhase == Phase.HALVES) {
+            } else if (phase == Phase.HALVES) {
                 // Determine boundaries of the current half
-                int r1, r2, c1 = 0, c2 = N - 1;
-                if (currentRegionIndex == 0) {
+                int r1, r2, c1 = 0, c2 = n - 1;
+                if (regionIndex == 0) {
                     r1 = 0; r2 = half - 1;
                 } else {
-                    r1 = half; r2 = N - 1;
+                    r1 = half; r2 = n - 1;
                 }
                 
                 // Check if this half is solved
@@ -543,38 +640,45 @@ public class FlipGameFX extends Application {
                 
                 if (solved) {
                     // Move to next half or to full board
-                    currentRegionIndex++;
-                    if (currentRegionIndex > 1) {
-                        currentPhase = Phase.FULL;
+                    regionIndex++;
+                    if (regionIndex > 1) {
+                        phase = Phase.FULL;
                     }
                     continue;
                 }
                 
-                int[] move = trySolveRegion(board, r1, r2, c1, c2);
+                int[] move = trySolveRegion(search, board, r1, r2, c1, c2);
                 if (move != null) {
-                    return move;
+                    return new SearchResult(board, move, phase, regionIndex);
                 } else {
                     // Fallback: advance
-                    currentRegionIndex++;
-                    if (currentRegionIndex > 1) {
-                        currentPhase = Phase.FULL;
+                    regionIndex++;
+                    if (regionIndex > 1) {
+                        phase = Phase.FULL;
                     }
                     continue;
                 }
                 
             } else { // FULL
                 // Check if full board is solved – if so game would have ended, but just in case
-                int[] move = trySolveRegion(board, 0, N - 1, 0, N - 1);
-                return move; // may be null
+                // The kept solution already holds the full-board answer: no solve needed
+                int[] move = full != null ? firstPress(full) : trySolveRegion(search, board, 0, n - 1, 0, n - 1);
+                return new SearchResult(board, move, phase, regionIndex); // move may be null
             }
         }
     }
     
+    /** First press of the kept full-board solution, or null if the board is white. */
+    private static int[] firstPress(IncrementalSolution full) {
+        int p = full.firstPress();
+        return p >= 0 ? new int[]{p / full.cols, p % full.cols} : null;
+    }
+    
     /**
      * Tries to find a move that helps solve a specific region
      * Returns the best move for that region or null if region is already solved
      */
-    private int[] trySolveRegion(int[][] board, int r1, int r2, int c1, int c2) {
+    private static int[] trySolveRegion(RegionSearch search, int[][] board, int r1, int r2, int c1, int c2) {
         // First check if this region is already all white
         boolean regionAllWhite = true;
         for (int r = r1; r <= r2; r++) {
@@ -591,62 +695,27 @@ public class FlipGameFX extends Application {
             return null; // Region already solved
         }
         
-        int height = r2 - r1 + 1;
-        int width = c2 - c1 + 1;
+        // A few parity checks rule out regions that cannot be solved in isolation
+        if (!SolvabilityOracle.isSolvable(board, KERNEL, r1, r2, c1, c2)) {
+            return null;
+        }
+        
+        // Other stencils solve through their own press systems
+        if (!KERNEL.isPlus()) {
+            int move = KernelSolver.firstMove(BitBoard.fromArray(board), KERNEL, r1, r2, c1, c2);
+            return move >= 0 ? new int[]{move / search.cols, move % search.cols} : null;
+        }
         
-        // Try all possible first row patterns
-        for (int mask = 0; mask < (1 << width); mask++) {
-            int[][] temp = copy(board);
-            List<int[]> moves = new ArrayList<>();
-            
-            // Apply first row pattern
-            for (int col = 0; col < width; col++) {
-                if ((mask & (1 << col)) != 0) {
-                    int[] move = new int[]{r1, c1 + col};
-                    flip(temp, move[0], move[1]);
-                    moves.add(move);
-                }
-            }
-            
-            // Chase down
-            for (int r = r1 + 1; r <= r2; r++) {
-                for (int c = c1; c <= c2; c++) {
-                    if (temp[r - 1][c] == 0) {
-                        int[] move = new int[]{r, c};
-                        flip(temp, move[0], move[1]);
-                        moves.add(move);
-                    }
-                }
-            }
-            
-            // Check if region is solved
-            boolean solved = true;
-            for (int r = r1; r <= r2; r++) {
-                for (int c = c1; c <= c2; c++) {
-                    if (temp[r][c] == 0) {
-                        solved = false;
-                        break;
-                    }
-                }
-                if (!solved) break;
-            }
-            
-            if (solved && !moves.isEmpty()) {
-                // Return the first move from this solution
-                return moves.get(0);
-            }
+        // Preallocated buffers and undo-by-reflip: no allocation per solve
+        int move = search.firstMove(board, r1, r2, c1, c2);
+        if (move >= 0) {
+            // Return the first move from this solution
+            return new int[]{move / search.cols, move % search.cols};
         }
         
         return null; // No solution found for this region
     }
     
-    // Check if a move would immediately solve the board
-    boolean wouldSolve(int[][] board, int r, int c) {
-        int[][] temp = copy(board);
-        flip(temp, r, c);
-        return isAllWhite(temp);
-    }
-    
     // ======================================================================
     // DETECT CURRENT SOLVING PHASE (for display)
     // ======================================================================
@@ -710,29 +779,118 @@ public class FlipGameFX extends Application {
     }
 
     // ======================================================================
-    // MOVE HANDLING - PROPER ALGORITHM IMPLEMENTATION
+    // BACKGROUND SEARCH
     // ======================================================================
     
-    private void saveGameState() {
-        undoStack.push(new GameState(board, userMoves, computerMoves, userTurn,
-                                     currentPhase, currentRegionIndex));
+    // Searches run on one daemon thread, one at a time, so a game's RegionSearch
+    // buffers are never used by two threads. Results come back via runLater.
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "flip-search");
+        t.setDaemon(true);
+        return t;
+    });
+    
+    private Future<?> computerSearch;       // pending computer move search, or null
+    private Future<?> hintSearch;           // pending hint search, or null
+    private long searchGeneration;          // bumped on cancel; stale results are dropped
+    
+    /** Outcome of a search on a board snapshot, with the region state it ended in. */
+    private static final class SearchResult {
+        final int[] move;                   // null when there is no move
+        final Phase phase;
+        final int regionIndex;
+        final boolean finalMove;            // the move would solve the whole board
+        long searchTime;                    // ns in getNextComputerMove, set by startSearch
+        
+        SearchResult(int[][] board, int[] move, Phase phase, int regionIndex) {
+            this.move = move;
+            this.phase = phase;
+            this.regionIndex = regionIndex;
+            
+            boolean solves = false;
+            if (move != null) {
+                flip(board, move[0], move[1]);
+                solves = isAllWhite(board);
+                flip(board, move[0], move[1]);
+            }
+            this.finalMove = solves;
+        }
     }
     
+    /**
+     * Runs getNextComputerMove on a copy of the board and region state and
+     * hands the result to onResult on the FX thread, unless cancelled first.
+     */
+    private Future<?> startSearch(Consumer<SearchResult> onResult) {
+        long generation = searchGeneration;
+        int[][] snapshot = copy(board);
+        Phase phase = currentPhase;
+        int regionIndex = currentRegionIndex;
+        RegionSearch search = regionSearch;
+        IncrementalSolution full = solution != null ? solution.copy() : null;
+        Future<?> tables = tablesReady;
+        
+        return SEARCH_EXECUTOR.submit(() -> {
+            try {
+                tables.get();   // the first search of a new size waits for its tables
+            } catch (InterruptedException e) {
+                return;
+            } catch (ExecutionException e) {
+                // The search builds the tables it needs itself
+            }
+            long t0 = System.nanoTime();
+            SearchResult result = getNextComputerMove(snapshot, phase, regionIndex, search, full);
+            if (result == null) return; // interrupted
+            result.searchTime = System.nanoTime() - t0;
+            int region = phase == Phase.SQUARES ? regionIndex : phase == Phase.HALVES ? 4 + regionIndex : 6;
+            Metrics.solveLatency(region).record(result.searchTime);
+            Platform.runLater(() -> {
+                if (generation == searchGeneration) {
+                    onResult.accept(result);
+                }
+            });
+        });
+    }
+    
+    /** Drops pending searches and the pauses and callbacks waiting on them. */
+    private void cancelSearch() {
+        searchGeneration++;
+        if (computerSearch != null) computerSearch.cancel(true);
+        if (hintSearch != null) hintSearch.cancel(true);
+        computerSearch = null;
+        hintSearch = null;
+    }
+
+    /** Commits the turn's JFR event (a no-op unless a recording enabled it). */
+    private void commitMoveEvent(FlipEvents.ComputerMove event, SearchResult result, long arrived) {
+        if (!event.shouldCommit()) return;
+        event.regionIndex = result.regionIndex;
+        event.phase = detectPhase();
+        event.searchTime = result.searchTime;
+        event.pauseTime = System.nanoTime() - arrived;
+        event.wouldSolve = result.finalMove;
+        event.row = result.move == null ? -1 : result.move[0];
+        event.col = result.move == null ? -1 : result.move[1];
+        event.commit();
+    }
+
+    // ======================================================================
+    // MOVE HANDLING - PROPER ALGORITHM IMPLEMENTATION
+    // ======================================================================
+    
     private void undoMove() {
-        if (undoStack.isEmpty() || !gameActive) {
+        cancelSearch();
+        if (!moveLog.canUndo() || !gameActive) {
             statusLabel.setText("Cannot undo");
             statusLabel.setTextFill(DANGER_COLOR);
             return;
         }
         
-        // Pop the state before the last move and restore it
-        GameState prevState = undoStack.pop();
-        board = copy(prevState.board);
-        userMoves = prevState.userMoves;
-        computerMoves = prevState.computerMoves;
-        userTurn = prevState.userTurn;
-        currentPhase = prevState.currentPhase;
-        currentRegionIndex = prevState.currentRegionIndex;
+        // Re-press the last move (a press is its own inverse) and restore the state before it
+        int i = moveLog.undo();
+        int press = moveLog.press(i);
+        pressTile(press / N, press % N);
+        unpackState(moveLog.stateBefore(i));
         gameActive = true;
         
         updateBoard();
@@ -742,22 +900,54 @@ public class FlipGameFX extends Application {
         statusLabel.setTextFill(ACCENT_COLOR);
     }
     
+    private void redoMove() {
+        if (!moveLog.canRedo() || !gameActive) {
+            statusLabel.setText("Cannot redo");
+            statusLabel.setTextFill(DANGER_COLOR);
+            return;
+        }
+        
+        int i = moveLog.redo();
+        int press = moveLog.press(i);
+        pressTile(press / N, press % N);
+        unpackState(moveLog.stateAfter(i));
+        
+        updateBoard();
+        updateStatus();
+        
+        if (isAllWhite(board)) {
+            showVictory((moveLog.stateBefore(i) & TURN_BIT) != 0);
+            return;
+        }
+        
+        statusLabel.setText("Move redone");
+        statusLabel.setTextFill(ACCENT_COLOR);
+        
+        // Redid the user's move with nothing left to redo: the computer replies
+        if (!userTurn && !moveLog.canRedo()) {
+            computerMove();
+        }
+    }
+    
     private void handleUserMove(int row, int col) {
         if (!gameActive || !userTurn) return;
         
-        saveGameState();  // Save state before user's move
+        long before = packState();  // State before user's move
         
         // User makes ONE move
         userTurn = false;
         userMoves++;
+        Metrics.USER_MOVES.increment();
         updateStatus();
         
         highlightMove(row, col, ACCENT_COLOR);
-        flip(board, row, col);
+        pressTile(row, col);
+        moveLog.record(row * N + col, before, packState());
         updateBoard();
         
         // Check if user won
         if (isAllWhite(board)) {
+            Metrics.GAMES_USER_WON.increment();
             showVictory(true);
             return;
         }
@@ -767,64 +957,93 @@ public class FlipGameFX extends Application {
     }
     
     private void computerMove() {
-        undoButton.setDisable(true);
+        redoButton.setDisable(true);   // Undo stays enabled: it cancels the search
         statusLabel.setText("Computer thinking...");
         statusLabel.setTextFill(SECONDARY_COLOR);
 
-        PauseTransition thinkingPause = new PauseTransition(Duration.seconds(0.5));
-        thinkingPause.setOnFinished(e -> {
-            int[] move = getNextComputerMove(board);
-            if (move == null) {
-                statusLabel.setText("Computer has no move");
-                statusLabel.setTextFill(DANGER_COLOR);
-                userTurn = true;
-                updateStatus();
-                undoButton.setDisable(false);
-                updateBoard(); // clear any lingering region highlight
-                return;
-            }
+        long generation = searchGeneration;
+        long started = System.nanoTime();
+        FlipEvents.ComputerMove event = new FlipEvents.ComputerMove();
+        event.begin();
+        
+        // Search off the FX thread; still show at least the usual 0.5 s of thinking
+        computerSearch = startSearch(result -> {
+            computerSearch = null;
+            long arrived = System.nanoTime();
+            double left = 0.5 - (System.nanoTime() - started) / 1e9;
+            PauseTransition thinkingPause = new PauseTransition(Duration.seconds(Math.max(0, left)));
+            thinkingPause.setOnFinished(e -> {
+                if (generation != searchGeneration) return; // cancelled meanwhile
+                
+                currentPhase = result.phase;
+                currentRegionIndex = result.regionIndex;
+                int[] move = result.move;
+                if (move == null) {
+                    statusLabel.setText("Computer has no move");
+                    statusLabel.setTextFill(DANGER_COLOR);
+                    userTurn = true;
+                    updateStatus();
+                    undoButton.setDisable(false);
+                    redoButton.setDisable(false);
+                    commitMoveEvent(event, result, arrived);
+                    updateBoard(); // clear any lingering region highlight
+                    return;
+                }
 
-            if (wouldSolve(board, move[0], move[1])) {
-                statusLabel.setText("Final move is yours!");
-                statusLabel.setTextFill(WARNING_COLOR);
-                highlightMove(move[0], move[1], WARNING_COLOR);
-                userTurn = true;
-                updateStatus();
-                undoButton.setDisable(false);
-                return;
-            }
+                if (result.finalMove) {
+                    statusLabel.setText("Final move is yours!");
+                    statusLabel.setTextFill(WARNING_COLOR);
+                    highlightMove(move[0], move[1], WARNING_COLOR);
+                    userTurn = true;
+                    updateStatus();
+                    undoButton.setDisable(false);
+                    redoButton.setDisable(false);
+                    commitMoveEvent(event, result, arrived);
+                    return;
+                }
 
-            // Highlight the current subproblem region (blue border) – no auto‑reset
-            applyRegionHighlight();
+                // Highlight the current subproblem region (blue border) – no auto‑reset
+                applyRegionHighlight();
 
-            // Short pause to let the region highlight be visible
-            PauseTransition regionPause = new PauseTransition(Duration.seconds(0.8));
-            regionPause.setOnFinished(ev -> {
-                saveGameState();
-                computerMoves++;
-                updateStatus();
+                // Short pause to let the region highlight be visible
+                PauseTransition regionPause = new PauseTransition(Duration.seconds(0.8));
+                regionPause.setOnFinished(ev -> {
+                    if (generation != searchGeneration) return; // cancelled meanwhile
+                
+                    long before = packState();
+                    computerMoves++;
+                    Metrics.COMPUTER_MOVES.increment();
+                    updateStatus();
 
-                // Perform the move – this will also clear all highlights after animation
-                highlightMove(move[0], move[1], PRIMARY_COLOR);
-                flip(board, move[0], move[1]);
-                updateBoard(); // immediate visual update (though highlightMove will also update after 0.3s)
+                    // Perform the move – this will also clear all highlights after animation
+                    highlightMove(move[0], move[1], PRIMARY_COLOR);
+                    pressTile(move[0], move[1]);
+                    updateBoard(); // immediate visual update (though highlightMove will also update after 0.3s)
 
-                advanceRegionIfSolved();
-                phaseLabel.setText("Current phase: " + detectPhase());
+                    advanceRegionIfSolved();
+                    phaseLabel.setText("Current phase: " + detectPhase());
 
-                if (isAllWhite(board)) {
-                    showVictory(false);
-                    undoButton.setDisable(false);
-                    return;
-                }
+                    boolean solved = isAllWhite(board);
+                    userTurn = !solved;
+                    moveLog.record(move[0] * N + move[1], before, packState());
+                    commitMoveEvent(event, result, arrived);
+
+                    if (solved) {
+                        Metrics.GAMES_COMPUTER_WON.increment();
+                        showVictory(false);
+                        undoButton.setDisable(false);
+                        redoButton.setDisable(false);
+                        return;
+                    }
 
-                userTurn = true;
-                updateStatus();
-                undoButton.setDisable(false);
+                    updateStatus();
+                    undoButton.setDisable(false);
+                    redoButton.setDisable(false);
+                });
+                regionPause.play();
             });
-            regionPause.play();
+            thinkingPause.play();
         });
-        thinkingPause.play();
     }
 
     /**
@@ -855,43 +1074,33 @@ public class FlipGameFX extends Application {
 
         Color regionColor = PHASE_2_COLOR; // consistent blue
 
-        for (int r = r1; r <= r2; r++) {
-            for (int c = c1; c <= c2; c++) {
-                Button tile = tiles[r][c];
-                String newStyle = tile.getStyle().replaceFirst(
-                    "-fx-border-color: #[0-9a-fA-F]{6};",
-                    "-fx-border-color: " + toHex(regionColor) + ";") +
-                    "-fx-border-width: 3;";
-                tile.setStyle(newStyle);
-            }
+        if (canvasView != null) {
+            canvasView.setRegion(r1, r2, c1, c2, regionColor);
+            return;
         }
+
+        dirtyTiles.setRegion(DirtyTiles.REGION, r1, r2, c1, c2);
     }
     
     private void highlightMove(int row, int col, Color color) {
-        int[] dr = {0, 1, -1, 0, 0};
-        int[] dc = {0, 0, 0, 1, -1};
-        
-        for (int i = 0; i < 5; i++) {
-            int nr = row + dr[i];
-            int nc = col + dc[i];
+        for (int[] cell : KERNEL.cells(N, N, row, col)) {
+            int nr = cell[0];
+            int nc = cell[1];
             
-            if (nr >= 0 && nr < N && nc >= 0 && nc < N) {
-                Button tile = tiles[nr][nc];
-                
-                String currentStyle = tile.getStyle();
-                String borderColor = toHex(color);
-                String newStyle = currentStyle.replaceFirst(
-                    "-fx-border-color: #[0-9a-fA-F]{6};", 
-                    "-fx-border-color: " + borderColor + ";");
-                tile.setStyle(newStyle);
-                
-                ScaleTransition st = new ScaleTransition(Duration.millis(150), tile);
-                st.setToX(1.1);
-                st.setToY(1.1);
-                st.setAutoReverse(true);
-                st.setCycleCount(2);
-                st.play();
+            if (canvasView != null) {
+                canvasView.highlight(nr, nc, color);
+                continue;
             }
+            
+            Button tile = tiles[nr][nc];
+            dirtyTiles.setMove(nr, nc, color);
+            
+            ScaleTransition st = new ScaleTransition(Duration.millis(150), tile);
+            st.setToX(1.1);
+            st.setToY(1.1);
+            st.setAutoReverse(true);
+            st.setCycleCount(2);
+            st.play();
         }
         
         // Reset styles after animation
@@ -900,57 +1109,73 @@ public class FlipGameFX extends Application {
         pause.play();
     }
     
+    /** Drops region and move highlights; changed tiles were already marked by pressTile. */
     private void updateBoard() {
-        for (int r = 0; r < N; r++) {
-            for (int c = 0; c < N; c++) {
-                updateTileStyle(tiles[r][c], board[r][c], false);
-            }
+        if (canvasView != null) {
+            canvasView.clearTransient();
+            return;
         }
+        
+        dirtyTiles.clear(DirtyTiles.REGION);
+        dirtyTiles.clear(DirtyTiles.MOVE);
     }
     
     private void updateStatus() {
-        String turn = userTurn ? "Your turn" : "Computer's turn";
-        moveLabel.setText(turn + " • Moves: " + userMoves + " • Computer: " + computerMoves);
+        updateMoveLabel();
         statusLabel.setText(userTurn ? "Make your move" : "Computer thinking...");
         statusLabel.setTextFill(userTurn ? ACCENT_COLOR : SECONDARY_COLOR);
         phaseLabel.setText("Current phase: " + detectPhase());
     }
     
+    private void updateMoveLabel() {
+        String turn = userTurn ? "Your turn" : "Computer's turn";
+        String left = solution != null ? " • To solve: " + solution.remaining() : "";
+        moveLabel.setText(turn + " • Moves: " + userMoves + " • Computer: " + computerMoves + left);
+    }
+    
     // ======================================================================
     // HINT SYSTEM - FOLLOWS THE SAME ALGORITHM
     // ======================================================================
     
     private void showHint() {
-        if (!gameActive) return;
+        if (!gameActive || hintSearch != null) return;
         
-        // Get the next move using the same stateful algorithm
-        int[] hint = getNextComputerMove(board);
-        
-        if (hint == null) {
-            statusLabel.setText("No hint available");
-            statusLabel.setTextFill(DANGER_COLOR);
-            return;
-        }
+        // Same stateful algorithm, searched on a snapshot off the FX thread
+        int movesAtStart = userMoves + computerMoves;
+        hintSearch = startSearch(result -> {
+            hintSearch = null;
+            if (userMoves + computerMoves != movesAtStart) return; // board changed meanwhile
+            
+            currentPhase = result.phase;
+            currentRegionIndex = result.regionIndex;
+            int[] hint = result.move;
+            
+            if (hint == null) {
+                statusLabel.setText("No hint available");
+                statusLabel.setTextFill(DANGER_COLOR);
+                return;
+            }
         
-        String phase = detectPhase();
-        Color phaseColor = PHASE_1_COLOR;
+            String phase = detectPhase();
+            Color phaseColor = PHASE_1_COLOR;
         
-        if (phase.contains("square")) {
-            phaseColor = PHASE_1_COLOR;
-        } else if (phase.contains("half")) {
-            phaseColor = PHASE_2_COLOR;
-        } else {
-            phaseColor = PHASE_3_COLOR;
-        }
+            if (phase.contains("square")) {
+                phaseColor = PHASE_1_COLOR;
+            } else if (phase.contains("half")) {
+                phaseColor = PHASE_2_COLOR;
+            } else {
+                phaseColor = PHASE_3_COLOR;
+            }
         
-        statusLabel.setText("Hint: Try tile (" + hint[0] + ", " + hint[1] + ") - " + phase);
-        statusLabel.setTextFill(phaseColor);
+            statusLabel.setText("Hint: Try tile (" + hint[0] + ", " + hint[1] + ") - " + phase);
+            statusLabel.setTextFill(phaseColor);
         
-        // Highlight the suggested tile
-        flashTile(hint[0], hint[1]);
+            // Highlight the suggested tile
+            flashTile(hint[0], hint[1]);
         
-        // Show which region is being solved
-        highlightHintRegion(hint[0], hint[1], phase);
+            // Show which region is being solved
+            highlightHintRegion(hint[0], hint[1], phase);
+        });
     }
     
     private void highlightHintRegion(int row, int col, String phase) {
@@ -979,47 +1204,32 @@ public class FlipGameFX extends Application {
         // Always use the same blue color for region highlighting
         Color regionColor = PHASE_2_COLOR;  // Consistent blue
         
-        // Store original styles
-        Map<Button, String> originalStyles = new HashMap<>();
-        
-        for (int r = r1; r <= r2; r++) {
-            for (int c = c1; c <= c2; c++) {
-                Button tile = tiles[r][c];
-                originalStyles.put(tile, tile.getStyle());
-                
-                String newStyle = tile.getStyle().replaceFirst(
-                    "-fx-border-color: #[0-9a-fA-F]{6};", 
-                    "-fx-border-color: " + toHex(regionColor) + ";") +
-                    "-fx-border-width: 3;";
-                tile.setStyle(newStyle);
-            }
+        if (canvasView != null) {
+            canvasView.setHintRegion(r1, r2, c1, c2, regionColor);
+            PauseTransition pause = new PauseTransition(Duration.seconds(1.5));
+            pause.setOnFinished(e -> canvasView.clearHintRegion());
+            pause.play();
+            return;
         }
         
+        dirtyTiles.setRegion(DirtyTiles.HINT, r1, r2, c1, c2);
+        
         PauseTransition pause = new PauseTransition(Duration.seconds(1.5));
-        pause.setOnFinished(e -> {
-            for (Map.Entry<Button, String> entry : originalStyles.entrySet()) {
-                entry.getKey().setStyle(entry.getValue());
-            }
-        });
+        pause.setOnFinished(e -> dirtyTiles.clear(DirtyTiles.HINT));
         pause.play();
     }
     
     private void flashTile(int r, int c) {
+        if (canvasView != null) {
+            canvasView.flash(r, c, WARNING_COLOR);
+            return;
+        }
+        
         Timeline flash = new Timeline(
-            new KeyFrame(Duration.ZERO, e -> {
-                tiles[r][c].setStyle(tiles[r][c].getStyle().replaceFirst(
-                    "-fx-border-color: #[0-9a-fA-F]{6};", 
-                    "-fx-border-color: " + toHex(WARNING_COLOR) + ";") +
-                    "-fx-border-width: 3;");
-            }),
-            new KeyFrame(Duration.millis(300), e -> updateTileStyle(tiles[r][c], board[r][c], false)),
-            new KeyFrame(Duration.millis(600), e -> {
-                tiles[r][c].setStyle(tiles[r][c].getStyle().replaceFirst(
-                    "-fx-border-color: #[0-9a-fA-F]{6};", 
-                    "-fx-border-color: " + toHex(WARNING_COLOR) + ";") +
-                    "-fx-border-width: 3;");
-            }),
-            new KeyFrame(Duration.millis(900), e -> updateTileStyle(tiles[r][c], board[r][c], false))
+            new KeyFrame(Duration.ZERO, e -> dirtyTiles.set(DirtyTiles.FLASH, r, c)),
+            new KeyFrame(Duration.millis(300), e -> dirtyTiles.clear(DirtyTiles.FLASH)),
+            new KeyFrame(Duration.millis(600), e -> dirtyTiles.set(DirtyTiles.FLASH, r, c)),
+            new KeyFrame(Duration.millis(900), e -> dirtyTiles.clear(DirtyTiles.FLASH))
         );
         flash.play();
     }
@@ -1108,6 +1318,8 @@ public class FlipGameFX extends Application {
     }
 
     public static void main(String[] args) {
+        FlipEvents.recordIfRequested();
+        Metrics.serveIfRequested();
         launch(args);
     }
 }
\ No newline at end of file
@@ -0,0 +1,297 @@
+package pck;
+import java.util.*;
+
+/**
+ * The cells a press flips, as (row, column) offsets from the pressed cell,
+ * either clipped at the board edges or wrapped around them (a torus).
+ *
+ * A stencil is compiled into per-row shift masks: pressing a whole row
+ * pattern p flips, in row r + rowOffset[i], p shifted by each column offset
+ * of rowShifts[i]. That is a handful of word shifts and XORs per row
+ * whatever the stencil, so presses stay word-parallel.
+ *
+ * Light chasing needs the top row of the stencil to be the single cell
+ * straight above the press (clipped, not wrapped): then the black cells of
+ * one row are cleared by pressing the cells {@link #chaseDepth} rows below
+ * them, and the top chaseDepth rows of a region are its free variables.
+ * The plus shape is such a kernel; the others solve by elimination over
+ * all the region's cells (see {@link KernelSolver}).
+ */
+public final class FlipKernel {
+
+    static final FlipKernel PLUS = new FlipKernel("plus",
+            new int[][] {{0, 0}, {-1, 0}, {1, 0}, {0, -1}, {0, 1}}, false);
+
+    static final FlipKernel TORUS = new FlipKernel("torus",
+            new int[][] {{0, 0}, {-1, 0}, {1, 0}, {0, -1}, {0, 1}}, true);
+
+    /** The press and its eight neighbours, diagonals included. */
+    static final FlipKernel DIAGONAL = new FlipKernel("diagonal",
+            new int[][] {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 0}, {0, 1}, {1, -1}, {1, 0}, {1, 1}}, false);
+
+    /** The press and the eight cells a chess knight reaches from it. */
+    static final FlipKernel KNIGHT = new FlipKernel("knight",
+            new int[][] {{0, 0}, {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}}, false);
+
+    /** Kernel given by {@code -Dpck.kernel} (see {@link #parse}), plus by default. */
+    static final FlipKernel DEFAULT = parse(System.getProperty("pck.kernel", "plus"));
+
+    final String name;
+    final boolean wrap;
+    final int[] dr;               // flipped cells, sorted by row then column
+    final int[] dc;
+
+    // Compiled stencil: rows rowOffset[i] away get the pattern shifted by each of rowShifts[i]
+    final int[] rowOffset;
+    final int[][] rowShifts;
+
+    /** Rows between a cell and the press that clears it in the chase, or 0 if the chase does not apply. */
+    final int chaseDepth;
+
+    FlipKernel(String name, int[][] offsets, boolean wrap) {
+        if (offsets.length == 0)
+            throw new IllegalArgumentException("Empty stencil: " + name);
+
+        int[][] sorted = offsets.clone();
+        Arrays.sort(sorted, (a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+        this.name = name;
+        this.wrap = wrap;
+        this.dr = new int[sorted.length];
+        this.dc = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            dr[i] = sorted[i][0];
+            dc[i] = sorted[i][1];
+            if (i > 0 && dr[i] == dr[i - 1] && dc[i] == dc[i - 1])
+                throw new IllegalArgumentException("Repeated offset in " + name + ": " + dr[i] + "," + dc[i]);
+        }
+
+        // Group by row offset
+        int groups = 0;
+        for (int i = 0; i < dr.length; i++)
+            if (i == 0 || dr[i] != dr[i - 1])
+                groups++;
+        this.rowOffset = new int[groups];
+        this.rowShifts = new int[groups][];
+        for (int i = 0, g = 0; i < dr.length; g++) {
+            int j = i;
+            while (j < dr.length && dr[j] == dr[i])
+                j++;
+            rowOffset[g] = dr[i];
+            rowShifts[g] = Arrays.copyOfRange(dc, i, j);
+            i = j;
+        }
+
+        boolean chaseable = !wrap && rowOffset[0] < 0 && rowShifts[0].length == 1 && rowShifts[0][0] == 0;
+        this.chaseDepth = chaseable ? -rowOffset[0] : 0;
+    }
+
+    /**
+     * A preset by name (plus, torus, diagonal, knight) or a stencil drawn as
+     * rows separated by '/', with 'x' (or '#') for flipped cells and '.' for
+     * the rest. The grid has odd height and width and the press is its
+     * centre; a ",wrap" suffix wraps it around the edges. So ".x./xxx/.x."
+     * is plus and ".x./xxx/.x.,wrap" is torus.
+     */
+    static FlipKernel parse(String spec) {
+        String s = spec.trim().toLowerCase(Locale.ROOT);
+        switch (s) {
+            case "plus": return PLUS;
+            case "torus": return TORUS;
+            case "diagonal": return DIAGONAL;
+            case "knight": return KNIGHT;
+            default: break;
+        }
+
+        boolean wrap = s.endsWith(",wrap");
+        if (wrap)
+            s = s.substring(0, s.length() - ",wrap".length());
+        String[] lines = s.split("/");
+        int h = lines.length, w = lines[0].length();
+        if (h % 2 == 0 || w % 2 == 0)
+            throw new IllegalArgumentException("Stencil needs odd height and width: " + spec);
+
+        List<int[]> offsets = new ArrayList<>();
+        for (int r = 0; r < h; r++) {
+            if (lines[r].length() != w)
+                throw new IllegalArgumentException("Ragged stencil: " + spec);
+            for (int c = 0; c < w; c++) {
+                char ch = lines[r].charAt(c);
+                if (ch == 'x' || ch == '#')
+                    offsets.add(new int[] {r - h / 2, c - w / 2});
+                else if (ch != '.')
+                    throw new IllegalArgumentException("Unexpected '" + ch + "' in stencil: " + spec);
+            }
+        }
+        FlipKernel k = new FlipKernel(spec.trim(), offsets.toArray(new int[0][]), wrap);
+        return k.equals(PLUS) ? PLUS : k.equals(TORUS) ? TORUS : k;
+    }
+
+    boolean isPlus() {
+        return this == PLUS || equals(PLUS);
+    }
+
+    boolean isChaseable() {
+        return chaseDepth > 0;
+    }
+
+    // ==========================================
+    // SINGLE PRESS
+    // ==========================================
+    /**
+     * Cells a press at (r,c) flips on a rows x cols board, as {row, col}. On
+     * a torus smaller than the stencil a cell can appear twice, and then
+     * flips twice.
+     */
+    int[][] cells(int rows, int cols, int r, int c) {
+        int[][] out = new int[dr.length][];
+        int n = 0;
+        for (int i = 0; i < dr.length; i++) {
+            int nr = r + dr[i], nc = c + dc[i];
+            if (wrap) {
+                nr = Math.floorMod(nr, rows);
+                nc = Math.floorMod(nc, cols);
+            } else if (nr < 0 || nr >= rows || nc < 0 || nc >= cols) {
+                continue;
+            }
+            out[n++] = new int[] {nr, nc};
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /** Flips the stencil around (r,c) on an int[][] board (1=White, 0=Black). */
+    void flip(int[][] board, int r, int c) {
+        int rows = board.length, cols = board[0].length;
+        for (int i = 0; i < dr.length; i++) {
+            int nr = r + dr[i], nc = c + dc[i];
+            if (wrap) {
+                nr = Math.floorMod(nr, rows);
+                nc = Math.floorMod(nc, cols);
+            } else if (nr < 0 || nr >= rows || nc < 0 || nc >= cols) {
+                continue;
+            }
+            board[nr][nc] ^= 1;
+        }
+    }
+
+    void press(BitBoard board, int r, int c) {
+        if (isPlus()) {
+            board.press(r, c);
+            return;
+        }
+        for (int i = 0; i < dr.length; i++) {
+            int nr = r + dr[i], nc = c + dc[i];
+            if (wrap) {
+                nr = Math.floorMod(nr, board.rows);
+                nc = Math.floorMod(nc, board.cols);
+            } else if (nr < 0 || nr >= board.rows || nc < 0 || nc >= board.cols) {
+                continue;
+            }
+            board.toggle(nr, nc);
+        }
+    }
+
+    // ==========================================
+    // ROW PRESS (WORD-PARALLEL)
+    // ==========================================
+    /**
+     * Presses every cell of row r set in {@code pattern} (board.words
+     * longs, bit c = column c, zero past the last column). {@code spread}
+     * is scratch of the same length.
+     */
+    void pressRow(BitBoard board, int r, long[] pattern, long[] spread) {
+        int words = board.words;
+        for (int g = 0; g < rowOffset.length; g++) {
+            int target = r + rowOffset[g];
+            if (wrap)
+                target = Math.floorMod(target, board.rows);
+            else if (target < 0 || target >= board.rows)
+                continue;
+
+            Arrays.fill(spread, 0, words, 0L);
+            for (int shift : rowShifts[g]) {
+                if (wrap) {
+                    // Column c lands on (c + shift) mod cols: two plain shifts
+                    int s = Math.floorMod(shift, board.cols);
+                    xorShifted(spread, pattern, words, s);
+                    if (s != 0)
+                        xorShifted(spread, pattern, words, s - board.cols);
+                } else {
+                    xorShifted(spread, pattern, words, shift);
+                }
+            }
+            spread[words - 1] &= board.lastMask;
+
+            int base = target * words;
+            for (int w = 0; w < words; w++)
+                board.bits[base + w] ^= spread[w];
+        }
+    }
+
+    /** dst ^= src moved {@code shift} columns right (negative: left); bits pushed off either end are dropped. */
+    private static void xorShifted(long[] dst, long[] src, int words, int shift) {
+        int ws = shift >> 6, bs = shift & 63;
+        for (int w = 0; w < words; w++) {
+            int s = w - ws;
+            long v = 0L;
+            if (s >= 0 && s < words)
+                v = src[s] << bs;
+            if (bs != 0 && s - 1 >= 0 && s - 1 < words)
+                v |= src[s - 1] >>> (64 - bs);
+            dst[w] ^= v;
+        }
+    }
+
+    // ==========================================
+    // CHASE DOWN
+    // ==========================================
+    /**
+     * For rows r1+chaseDepth..r2 of the region, presses under every black
+     * cell of the row chaseDepth above, a row at a time. Presses are toggled
+     * into {@code presses} (a board-shaped bit set) when it is non-null.
+     * Leaves only the bottom chaseDepth rows of the region possibly black.
+     */
+    void chase(BitBoard board, int r1, int r2, int c1, int c2, BitBoard presses) {
+        if (!isChaseable())
+            throw new IllegalStateException("Kernel " + name + " cannot be chased");
+
+        int words = board.words, w0 = c1 >>> 6, w1 = c2 >>> 6;
+        long[] pattern = new long[words], spread = new long[words];
+
+        for (int row = r1 + chaseDepth; row <= r2; row++) {
+            int above = (row - chaseDepth) * words;
+            boolean any = false;
+            for (int w = w0; w <= w1; w++) {
+                pattern[w] = board.bits[above + w] & BitBoard.rangeMask(w, c1, c2);
+                any |= pattern[w] != 0;
+            }
+            if (!any)
+                continue;
+
+            pressRow(board, row, pattern, spread);
+            if (presses != null)
+                for (int w = w0; w <= w1; w++)
+                    presses.bits[row * words + w] ^= pattern[w];
+        }
+    }
+
+    // ==========================================
+    // IDENTITY
+    // ==========================================
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof FlipKernel))
+            return false;
+        FlipKernel k = (FlipKernel) o;
+        return wrap == k.wrap && Arrays.equals(dr, k.dr) && Arrays.equals(dc, k.dc);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(dr) + Arrays.hashCode(dc)) + (wrap ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -3,26 +3,34 @@ import java.util.*;
 
 public class Flip_6 {
 
-    static int N;
+    // First-row masks are enumerated on all cores; wide regions use elimination
+    static RegionSolver.Mode solverMode = RegionSolver.Mode.PARALLEL;
 
     public static void main(String[] args) {
 
         Scanner sc = new Scanner(System.in);
 
-        System.out.print("Enter board size (even number): ");
-        N = sc.nextInt();
+        System.out.print("Enter board size (rows cols): ");
+        int rows = sc.nextInt();
+        int cols = sc.nextInt();
 
-        if (N % 2 != 0) {
-            System.out.println("Board size must be even.");
+        if (rows < 1 || cols < 1) {
+            System.out.println("Board size must be positive.");
             return;
         }
 
-        int[][] board = new int[N][N];
+        SolverContext ctx = SolverContext.of(rows, cols);
+        if (!ctx.fitsSolver()) {
+            System.out.println(ctx.tooLargeMessage());
+            return;
+        }
+
+        int[][] board = new int[rows][cols];
 
         System.out.println("Enter board (1=White, 0=Black):");
 
-        for (int i = 0; i < N; i++)
-            for (int j = 0; j < N; j++)
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
                 board[i][j] = sc.nextInt();
 
         System.out.println("\nInitial Board:");
@@ -39,86 +47,58 @@ public class Flip_6 {
     // ==========================================
     static void solveBoard(int[][] board) {
 
-        int half = N / 2;
+        SolverContext ctx = SolverContext.of(board);
+        int[][] regions = ctx.regions;
 
-        System.out.println("Dividing into two " + half + "x" + N + " halves\n");
+        System.out.println("Dividing into two " + ctx.rowHalf + "x" + ctx.cols + " halves\n");
 
         // Top half
-        solveHalf(board, 0, half - 1, 0, N - 1);
+        solveHalf(ctx, board, regions[0], regions[1], regions[4]);
 
         // Bottom half
-        solveHalf(board, half, N - 1, 0, N - 1);
+        solveHalf(ctx, board, regions[2], regions[3], regions[5]);
 
         // Finally solve entire board
-        solveSubBoard(board, 0, N - 1, 0, N - 1);
+        solveSubBoard(ctx, board, regions[6]);
     }
 
     // ==========================================
-    // SOLVE HALF (N/2 × N)
+    // SOLVE HALF (rows/2 × cols)
     // ==========================================
-    static void solveHalf(int[][] board,
-                          int r1, int r2,
-                          int c1, int c2) {
-
-        int half = N / 2;
+    static void solveHalf(SolverContext ctx, int[][] board,
+                          int[] left, int[] right, int[] half) {
 
         System.out.println("Dividing into two "
-                + half + "x" + half + " squares\n");
-
-        int midCol = (c1 + c2) / 2;
+                + (half[1] - half[0] + 1) + "x" + ctx.colHalf + " squares\n");
 
         // Left square
-        solveSubBoard(board, r1, r2, c1, midCol);
+        solveSubBoard(ctx, board, left);
 
         // Right square
-        solveSubBoard(board, r1, r2, midCol + 1, c2);
+        solveSubBoard(ctx, board, right);
 
         // Then solve the half rectangle
-        solveSubBoard(board, r1, r2, c1, c2);
+        solveSubBoard(ctx, board, half);
     }
 
     // ==========================================
     // FIRST ROW ENUMERATION + CHASE DOWN
     // ==========================================
-    static void solveSubBoard(int[][] board,
-                              int r1, int r2,
-                              int c1, int c2) {
+    static void solveSubBoard(SolverContext ctx, int[][] board, int[] region) {
+
+        if (SolverContext.isEmpty(region))
+            return;
+
+        System.out.println("Solving region: (" + region[0] + "," + region[2] +
+                ") to (" + region[1] + "," + region[3] + ")\n");
+
+        List<int[]> moves = ctx.solve(board, region, solverMode);
+
+        if (moves != null) {
 
-        System.out.println("Solving region: (" + r1 + "," + c1 +
-                ") to (" + r2 + "," + c2 + ")\n");
-
-        int width = c2 - c1 + 1;
-        int[][] original = copy(board);
-
-        for (int mask = 0; mask < (1 << width); mask++) {
-
-            int[][] temp = copy(original);
-            List<int[]> moves = new ArrayList<>();
-
-            // First row guess
-            for (int col = 0; col < width; col++) {
-                if ((mask & (1 << col)) != 0) {
-                    flip(temp, r1, c1 + col);
-                    moves.add(new int[]{r1, c1 + col});
-                }
-            }
-
-            // Chase down
-            for (int row = r1 + 1; row <= r2; row++) {
-                for (int col = c1; col <= c2; col++) {
-                    if (temp[row - 1][col] == 0) {
-                        flip(temp, row, col);
-                        moves.add(new int[]{row, col});
-                    }
-                }
-            }
-
-            if (isAllWhite(temp, r1, r2, c1, c2)) {
-
-                System.out.println("Solution found.\n");
-                applyMoves(board, moves);
-                return;
-            }
+            System.out.println("Solution found.\n");
+            applyMoves(ctx, board, moves);
+            return;
         }
 
         System.out.println("No solution for this region.\n");
@@ -127,7 +107,7 @@ public class Flip_6 {
     // ==========================================
     // APPLY MOVES STEP BY STEP
     // ==========================================
-    static void applyMoves(int[][] board, List<int[]> moves) {
+    static void applyMoves(SolverContext ctx, int[][] board, List<int[]> moves) {
 
         for (int[] move : moves) {
 
@@ -135,29 +115,11 @@ public class Flip_6 {
             int c = move[1];
 
             System.out.println("Flip (" + r + "," + c + ")");
-            flip(board, r, c);
+            ctx.flip(board, r, c);
             print(board);
         }
     }
 
-    // ==========================================
-    // FLIP
-    // ==========================================
-    static void flip(int[][] board, int r, int c) {
-
-        int[] dr = {0, 1, -1, 0, 0};
-        int[] dc = {0, 0, 0, 1, -1};
-
-        for (int i = 0; i < 5; i++) {
-
-            int nr = r + dr[i];
-            int nc = c + dc[i];
-
-            if (nr >= 0 && nr < N && nc >= 0 && nc < N)
-                board[nr][nc] ^= 1;
-        }
-    }
-
     // ==========================================
     static boolean isAllWhite(int[][] board,
                               int r1, int r2,
@@ -171,13 +133,6 @@ public class Flip_6 {
         return true;
     }
 
-    static int[][] copy(int[][] board) {
-        int[][] newBoard = new int[N][N];
-        for (int i = 0; i < N; i++)
-            newBoard[i] = board[i].clone();
-        return newBoard;
-    }
-
     static void print(int[][] board) {
         for (int[] row : board) {
             for (int val : row)
@@ -3,25 +3,41 @@ import java.util.*;
 
 public class Flip_7 {
 
-    static int N;
+    // ELIMINATION gives the same moves as ENUMERATION but is not limited
+    // to narrow regions
+    static RegionSolver.Mode solverMode = RegionSolver.Mode.ELIMINATION;
+
+    // Solve the whole board exactly by seam decomposition, falling back to
+    // the region-by-region plan for boards that have no solution. Off by
+    // default: each interior is chased twice, so without spare cores it is
+    // slower than elimination with cached transfer tables
+    static boolean decomposition = false;
+
     static Scanner sc = new Scanner(System.in);
 
     public static void main(String[] args) {
 
-        System.out.print("Enter board size (even number): ");
-        N = sc.nextInt();
+        System.out.print("Enter board size (rows cols): ");
+        int rows = sc.nextInt();
+        int cols = sc.nextInt();
 
-        if (N % 2 != 0) {
-            System.out.println("Board size must be even.");
+        if (rows < 1 || cols < 1) {
+            System.out.println("Board size must be positive.");
             return;
         }
 
-        int[][] board = new int[N][N];
+        SolverContext ctx = SolverContext.of(rows, cols);
+        if (!ctx.fitsSolver()) {
+            System.out.println(ctx.tooLargeMessage());
+            return;
+        }
+
+        int[][] board = new int[rows][cols];
 
         System.out.println("Enter board (1=White, 0=Black):");
 
-        for (int i = 0; i < N; i++)
-            for (int j = 0; j < N; j++)
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
                 board[i][j] = sc.nextInt();
 
         print(board);
@@ -33,7 +49,12 @@ public class Flip_7 {
             int r = sc.nextInt();
             int c = sc.nextInt();
 
-            flip(board, r, c);
+            if (!ctx.inBounds(r, c)) {
+                System.out.println("Invalid move.");
+                continue;
+            }
+
+            ctx.flip(board, r, c);
             System.out.println("You flipped (" + r + "," + c + ")");
             print(board);
 
@@ -50,7 +71,7 @@ public class Flip_7 {
 
             int[] move = plan.get(0);
 
-            flip(board, move[0], move[1]);
+            ctx.flip(board, move[0], move[1]);
             System.out.println("System flipped (" + move[0] + "," + move[1] + ")");
             print(board);
         }
@@ -61,27 +82,26 @@ public class Flip_7 {
 
     // =========================================================
     // BUILD STRUCTURED PLAN FOLLOWING:
-    // N×N → halves → squares → halves → full
+    // M×N → halves → squares → halves → full
     // =========================================================
     static List<int[]> buildStructuredPlan(int[][] board) {
 
-        int[][] copy = copy(board);
-        List<int[]> moves = new ArrayList<>();
-
-        int half = N / 2;
+        SolverContext ctx = SolverContext.of(board);
 
-        // ----- Solve 4 squares -----
-        collectMoves(copy, 0, half - 1, 0, half - 1, moves);
-        collectMoves(copy, 0, half - 1, half, N - 1, moves);
-        collectMoves(copy, half, N - 1, 0, half - 1, moves);
-        collectMoves(copy, half, N - 1, half, N - 1, moves);
+        // The decomposition is built on the plus kernel's chase
+        if (decomposition && ctx.kernel.isPlus()) {
+            List<int[]> exact = DecompositionSolver.solve(board);
+            if (exact != null)
+                return exact;
+        }
 
-        // ----- Solve 2 halves -----
-        collectMoves(copy, 0, half - 1, 0, N - 1, moves);
-        collectMoves(copy, half, N - 1, 0, N - 1, moves);
+        int[][] copy = ctx.copy(board);
+        List<int[]> moves = new ArrayList<>();
 
-        // ----- Solve full board -----
-        collectMoves(copy, 0, N - 1, 0, N - 1, moves);
+        // ctx.regions is already in plan order:
+        // 4 squares, 2 halves, full board
+        for (int[] region : ctx.regions)
+            collectMoves(ctx, copy, region, moves);
 
         return moves;
     }
@@ -89,64 +109,23 @@ public class Flip_7 {
     // =========================================================
     // FIRST ROW ENUMERATION + CHASE DOWN FOR A REGION
     // =========================================================
-    static void collectMoves(int[][] board,
-                             int r1, int r2,
-                             int c1, int c2,
+    static void collectMoves(SolverContext ctx, int[][] board,
+                             int[] region,
                              List<int[]> globalMoves) {
 
-        int width = c2 - c1 + 1;
-        int[][] original = copy(board);
-
-        for (int mask = 0; mask < (1 << width); mask++) {
-
-            int[][] temp = copy(original);
-            List<int[]> localMoves = new ArrayList<>();
+        List<int[]> localMoves = ctx.solve(board, region, solverMode);
 
-            // First row guess
-            for (int col = 0; col < width; col++) {
-                if ((mask & (1 << col)) != 0) {
-                    flip(temp, r1, c1 + col);
-                    localMoves.add(new int[]{r1, c1 + col});
-                }
-            }
-
-            // Chase down
-            for (int row = r1 + 1; row <= r2; row++) {
-                for (int col = c1; col <= c2; col++) {
-                    if (temp[row - 1][col] == 0) {
-                        flip(temp, row, col);
-                        localMoves.add(new int[]{row, col});
-                    }
-                }
-            }
-
-            if (isAllWhite(temp, r1, r2, c1, c2)) {
+        if (localMoves != null) {
 
-                // Commit moves to working board copy
-                for (int[] move : localMoves)
-                    flip(board, move[0], move[1]);
+            // Commit moves to working board copy
+            for (int[] move : localMoves)
+                ctx.flip(board, move[0], move[1]);
 
-                globalMoves.addAll(localMoves);
-                return;
-            }
+            globalMoves.addAll(localMoves);
         }
     }
 
     // =========================================================
-    static void flip(int[][] board, int r, int c) {
-
-        int[] dr = {0, 1, -1, 0, 0};
-        int[] dc = {0, 0, 0, 1, -1};
-
-        for (int i = 0; i < 5; i++) {
-            int nr = r + dr[i];
-            int nc = c + dc[i];
-
-            if (nr >= 0 && nr < N && nc >= 0 && nc < N)
-                board[nr][nc] ^= 1;
-        }
-    }
-
     static boolean isAllWhite(int[][] board,
                               int r1, int r2,
                               int c1, int c2) {
@@ -167,13 +146,6 @@ public class Flip_7 {
         return true;
     }
 
-    static int[][] copy(int[][] board) {
-        int[][] newBoard = new int[N][N];
-        for (int i = 0; i < N; i++)
-            newBoard[i] = board[i].clone();
-        return newBoard;
-    }
-
     static void print(int[][] board) {
         for (int[] row : board) {
             for (int val : row)
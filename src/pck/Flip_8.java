@@ -3,26 +3,40 @@ import java.util.*;
 
 public class Flip_8 {
 
-    static int N;
+    // OPTIMAL picks the fewest presses per region on sizes where the press
+    // matrix has a null space; ELIMINATION reproduces the old enumeration order
+    static RegionSolver.Mode solverMode = RegionSolver.Mode.OPTIMAL;
+
+    // The computer plays from a full-board solution updated by each press
+    // (IncrementalSolution), kept at the fewest presses under OPTIMAL;
+    // false re-derives the structured plan every turn
+    static boolean incremental = true;
 
     public static void main(String[] args) {
 
         Scanner sc = new Scanner(System.in);
 
-        System.out.print("Enter board size (even number): ");
-        N = sc.nextInt();
+        System.out.print("Enter board size (rows cols): ");
+        int rows = sc.nextInt();
+        int cols = sc.nextInt();
 
-        if (N % 2 != 0) {
-            System.out.println("Board size must be even.");
+        if (rows < 1 || cols < 1) {
+            System.out.println("Board size must be positive.");
             return;
         }
 
-        int[][] board = new int[N][N];
+        SolverContext ctx = SolverContext.of(rows, cols);
+        if (!ctx.fitsSolver()) {
+            System.out.println(ctx.tooLargeMessage());
+            return;
+        }
+
+        int[][] board = new int[rows][cols];
 
         System.out.println("Enter board (1=White, 0=Black):");
 
-        for (int i = 0; i < N; i++)
-            for (int j = 0; j < N; j++)
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
                 board[i][j] = sc.nextInt();
 
         System.out.println("\nInitial Board:");
@@ -37,150 +51,118 @@ public class Flip_8 {
     static void playGame(int[][] board) {
 
         Scanner sc = new Scanner(System.in);
+        SolverContext ctx = SolverContext.of(board);
+
+        // Null when the board cannot be solved; a press never changes that
+        IncrementalSolution solution = incremental && ctx.kernel.isPlus()
+                ? IncrementalSolution.of(board) : null;
+        if (solution != null && solverMode == RegionSolver.Mode.OPTIMAL)
+            solution.minimize();
 
-        while (!isAllWhite(board)) {
+        while (!ctx.isAllWhite(board)) {
 
             // ========== USER MOVE ==========
             System.out.println("Your move (row col): ");
             int r = sc.nextInt();
             int c = sc.nextInt();
 
-            if (r < 0 || r >= N || c < 0 || c >= N) {
+            if (!ctx.inBounds(r, c)) {
                 System.out.println("Invalid move.");
                 continue;
             }
 
-            flip(board, r, c);
+            ctx.flip(board, r, c);
+            if (solution != null)
+                solution.press(r, c);
             System.out.println("After your move:");
             print(board);
 
-            if (isAllWhite(board))
+            if (ctx.isAllWhite(board))
                 break;
 
             // ========== COMPUTER MOVE ==========
-            List<int[]> solutionMoves = solveBoardAndReturnMoves(board);
+            int[] move = solution != null ? incrementalMove(solution) : structuredMove(board);
 
-            if (solutionMoves.isEmpty()) {
+            if (move == null) {
                 System.out.println("No solution possible from here.");
                 break;
             }
 
-            int[] move = solutionMoves.get(0);
-
             System.out.println("Computer flips (" + move[0] + "," + move[1] + ")");
-            flip(board, move[0], move[1]);
+            ctx.flip(board, move[0], move[1]);
+            if (solution != null)
+                solution.press(move[0], move[1]);
             print(board);
+
+            if (solution != null)
+                System.out.println("Moves to solve: " + solution.remaining());
         }
 
         System.out.println("Game Over!");
     }
 
+    // First press of the kept solution: no solve per turn
+    static int[] incrementalMove(IncrementalSolution solution) {
+        int p = solution.firstPress();
+        return p >= 0 ? new int[]{p / solution.cols, p % solution.cols} : null;
+    }
+
+    static int[] structuredMove(int[][] board) {
+        List<int[]> solutionMoves = solveBoardAndReturnMoves(board);
+        return solutionMoves.isEmpty() ? null : solutionMoves.get(0);
+    }
+
     // =====================================================
     // ORIGINAL STRUCTURED SOLVER (NOW RETURNS MOVES)
     // =====================================================
     static List<int[]> solveBoardAndReturnMoves(int[][] board) {
 
-        int[][] copyBoard = copy(board);
+        SolverContext ctx = SolverContext.of(board);
+        int[][] copyBoard = ctx.copy(board);
         List<int[]> allMoves = new ArrayList<>();
 
-        int half = N / 2;
+        int[][] regions = ctx.regions;
 
-        solveHalf(copyBoard, 0, half - 1, 0, N - 1, allMoves);
-        solveHalf(copyBoard, half, N - 1, 0, N - 1, allMoves);
-        solveSubBoard(copyBoard, 0, N - 1, 0, N - 1, allMoves);
+        solveHalf(ctx, copyBoard, regions[0], regions[1], regions[4], allMoves);
+        solveHalf(ctx, copyBoard, regions[2], regions[3], regions[5], allMoves);
+        solveSubBoard(ctx, copyBoard, regions[6], allMoves);
 
-        if (isAllWhite(copyBoard))
+        if (ctx.isAllWhite(copyBoard))
             return allMoves;
 
         return new ArrayList<>();
     }
 
     // =====================================================
-    static void solveHalf(int[][] board,
-                          int r1, int r2,
-                          int c1, int c2,
+    static void solveHalf(SolverContext ctx, int[][] board,
+                          int[] left, int[] right, int[] half,
                           List<int[]> moves) {
 
-        int midCol = (c1 + c2) / 2;
-
-        solveSubBoard(board, r1, r2, c1, midCol, moves);
-        solveSubBoard(board, r1, r2, midCol + 1, c2, moves);
-        solveSubBoard(board, r1, r2, c1, c2, moves);
+        solveSubBoard(ctx, board, left, moves);
+        solveSubBoard(ctx, board, right, moves);
+        solveSubBoard(ctx, board, half, moves);
     }
 
     // =====================================================
     // FIRST ROW ENUMERATION + CHASE DOWN (UNCHANGED LOGIC)
     // =====================================================
-    static void solveSubBoard(int[][] board,
-                              int r1, int r2,
-                              int c1, int c2,
+    static void solveSubBoard(SolverContext ctx, int[][] board,
+                              int[] region,
                               List<int[]> globalMoves) {
 
-        int width = c2 - c1 + 1;
-        int[][] original = copy(board);
-
-        for (int mask = 0; mask < (1 << width); mask++) {
-
-            int[][] temp = copy(original);
-            List<int[]> tempMoves = new ArrayList<>();
-
-            // First row guess
-            for (int col = 0; col < width; col++) {
-                if ((mask & (1 << col)) != 0) {
-                    flip(temp, r1, c1 + col);
-                    tempMoves.add(new int[]{r1, c1 + col});
-                }
-            }
-
-            // Chase down
-            for (int row = r1 + 1; row <= r2; row++) {
-                for (int col = c1; col <= c2; col++) {
-                    if (temp[row - 1][col] == 0) {
-                        flip(temp, row, col);
-                        tempMoves.add(new int[]{row, col});
-                    }
-                }
-            }
+        List<int[]> tempMoves = ctx.solve(board, region, solverMode);
 
-            if (isAllWhiteRegion(temp, r1, r2, c1, c2)) {
+        if (tempMoves != null) {
 
-                // Apply moves to real board
-                for (int[] move : tempMoves) {
-                    flip(board, move[0], move[1]);
-                    globalMoves.add(move);
-                }
-                return;
+            // Apply moves to real board
+            for (int[] move : tempMoves) {
+                ctx.flip(board, move[0], move[1]);
+                globalMoves.add(move);
             }
         }
     }
 
     // =====================================================
-    static void flip(int[][] board, int r, int c) {
-
-        int[] dr = {0, 1, -1, 0, 0};
-        int[] dc = {0, 0, 0, 1, -1};
-
-        for (int i = 0; i < 5; i++) {
-
-            int nr = r + dr[i];
-            int nc = c + dc[i];
-
-            if (nr >= 0 && nr < N && nc >= 0 && nc < N)
-                board[nr][nc] ^= 1;
-        }
-    }
-
-    // =====================================================
-    static boolean isAllWhite(int[][] board) {
-
-        for (int i = 0; i < N; i++)
-            for (int j = 0; j < N; j++)
-                if (board[i][j] == 0)
-                    return false;
-
-        return true;
-    }
-
     static boolean isAllWhiteRegion(int[][] board,
                                     int r1, int r2,
                                     int c1, int c2) {
@@ -193,17 +175,6 @@ public class Flip_8 {
         return true;
     }
 
-    // =====================================================
-    static int[][] copy(int[][] board) {
-
-        int[][] newBoard = new int[N][N];
-
-        for (int i = 0; i < N; i++)
-            newBoard[i] = board[i].clone();
-
-        return newBoard;
-    }
-
     // =====================================================
     static void print(int[][] board) {
 
@@ -0,0 +1,250 @@
+package pck;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The rules of FlipGameSimulation without any UI or delays.
+ *
+ * The user and the computer alternate one press each. The computer works
+ * through regions 0..6 (squares TL, TR, BL, BR, then the top and bottom
+ * halves, then the full board), never going back to a passed region. It
+ * passes when it has no move, and when its move would solve the board it
+ * hands that final move to the user instead of playing it, so only the user
+ * ever finishes the board.
+ *
+ * Both sides are pluggable {@link Player}s. One engine plays any number of
+ * games through {@link #reset}; all its buffers are reused, so a thread with
+ * its own engine plays games without allocating. Not thread-safe.
+ */
+public class GameEngine {
+
+    /** Picks a press, packed as {@code row * size + col}, or -1 for none. */
+    interface Player {
+        int move(GameEngine game);
+    }
+
+    /** Presses a uniformly random tile. */
+    static final Player RANDOM_USER = game -> game.random.nextInt(game.size * game.size);
+
+    /** Plays the move the hint would show (the computer's own next move). */
+    static final Player HINT_USER = GameEngine::regionMove;
+
+    /** The computer of FlipGameSimulation: the region-by-region plan. */
+    static final Player REGION_COMPUTER = GameEngine::regionMove;
+
+    enum Outcome { USER_WON, MOVE_LIMIT }
+
+    final int size;
+    final SolverContext context;
+    final BitBoard board;
+    final SplittableRandom random;
+    private final RegionSearch search;
+
+    int nextRegion;          // 0..6, the region the computer works on
+    int lastComputerMove;    // packed, or -1
+    int userMoves;
+    int computerMoves;
+    int handoffs;            // times the final move was handed to the user
+    int passes;              // times the computer had no move
+
+    GameEngine(int size, long seed) {
+        this(size, seed, FlipKernel.DEFAULT);
+    }
+
+    GameEngine(int size, long seed, FlipKernel kernel) {
+        this.size = size;
+        this.context = SolverContext.of(size, size, kernel);
+        this.board = new BitBoard(size, size);
+        this.random = new SplittableRandom(seed);
+        this.search = new RegionSearch(size, size);
+    }
+
+    // ==========================================
+    // SETUP
+    // ==========================================
+    /** All white plus N*2 + rand(N) random presses, like a new FlipGameSimulation game. */
+    void reset() {
+        Arrays.fill(board.bits, 0L);
+        int flips = size * 2 + random.nextInt(size);
+        for (int i = 0; i < flips; i++)
+            context.press(board, random.nextInt(size), random.nextInt(size));
+        resetCounters();
+    }
+
+    void reset(int[][] start) {
+        board.load(start);
+        resetCounters();
+    }
+
+    private void resetCounters() {
+        Metrics.GAMES_STARTED.increment();
+        nextRegion = 0;
+        lastComputerMove = -1;
+        userMoves = 0;
+        computerMoves = 0;
+        handoffs = 0;
+        passes = 0;
+    }
+
+    // ==========================================
+    // PLAY
+    // ==========================================
+    /** Plays turns until the board is solved or {@code moveLimit} presses were made. */
+    Outcome play(Player user, Player computer, int moveLimit) {
+        while (userMoves + computerMoves < moveLimit) {
+            if (userTurn(user)) {
+                Metrics.GAMES_USER_WON.increment();
+                return Outcome.USER_WON;
+            }
+            computerTurn(computer);
+        }
+        Metrics.GAMES_MOVE_LIMIT.increment();
+        return Outcome.MOVE_LIMIT;
+    }
+
+    /** One user press; returns true if it solved the board. */
+    boolean userTurn(Player user) {
+        int move = user.move(this);
+        if (move < 0)
+            return false;
+        userMoves++;
+        Metrics.USER_MOVES.increment();
+        context.press(board, move / size, move % size);
+        return board.isAllWhite();
+    }
+
+    /**
+     * One computer turn. A move that would solve the board is not played:
+     * the turn passes to the user.
+     */
+    void computerTurn(Player computer) {
+        FlipEvents.ComputerMove event = new FlipEvents.ComputerMove();
+        event.begin();
+        int region = nextRegion;
+        long started = System.nanoTime();
+        int move = computer.move(this);
+        long searched = System.nanoTime() - started;
+        Metrics.solveLatency(region).record(searched);
+        if (move < 0) {
+            passes++;
+            commit(event, region, searched, move, false);
+            return;
+        }
+
+        int r = move / size, c = move % size;
+        context.press(board, r, c);
+        if (board.isAllWhite()) {
+            context.press(board, r, c); // "Final move is yours!"
+            handoffs++;
+            commit(event, region, searched, move, true);
+            return;
+        }
+
+        computerMoves++;
+        Metrics.COMPUTER_MOVES.increment();
+        lastComputerMove = move;
+        commit(event, region, searched, move, false);
+    }
+
+    /** Commits the turn's JFR event (a no-op unless a recording enabled it). */
+    private void commit(FlipEvents.ComputerMove event, int region, long searched, int move, boolean wouldSolve) {
+        if (!event.shouldCommit())
+            return;
+        event.regionIndex = region;
+        event.phase = region < 4 ? "SQUARES" : region < 6 ? "HALVES" : "FULL";
+        event.searchTime = searched;
+        event.wouldSolve = wouldSolve;
+        event.row = move < 0 ? -1 : move / size;
+        event.col = move < 0 ? -1 : move % size;
+        event.commit();
+    }
+
+    // ==========================================
+    // COMPUTER: REGION PLAN
+    // ==========================================
+    /**
+     * First press of the current region's solution, skipping regions that
+     * are already white or cannot be solved in isolation. Advances
+     * nextRegion past them, as FlipGameSimulation does.
+     */
+    int regionMove() {
+        int[][] regions = context.regions;
+
+        while (nextRegion <= 6) {
+            int[] r = regions[nextRegion];
+            if (!SolverContext.isEmpty(r) && !board.isRegionWhite(r[0], r[1], r[2], r[3])
+                    && SolvabilityOracle.isSolvable(board, context.kernel, r[0], r[1], r[2], r[3])) {
+                int move = context.kernel.isPlus()
+                        ? search.firstMove(board, r[0], r[1], r[2], r[3])
+                        : KernelSolver.firstMove(board, context.kernel, r[0], r[1], r[2], r[3]);
+                if (move >= 0)
+                    return move;
+            }
+            nextRegion++;
+        }
+        return -1;
+    }
+
+    // ==========================================
+    // MANY GAMES ACROSS ALL CORES
+    // ==========================================
+    /**
+     * Plays {@code games} scrambled games split over {@code threads} workers,
+     * each with its own engine seeded from {@code seed}, and merges the stats.
+     */
+    static GameStats run(int size, long games, int threads, long seed,
+                         Player user, Player computer, int moveLimit) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<GameStats>> parts = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            long share = games / threads + (t < games % threads ? 1 : 0);
+            long workerSeed = seed + t;
+            parts.add(pool.submit(() -> {
+                GameEngine engine = new GameEngine(size, workerSeed);
+                GameStats stats = new GameStats();
+                for (long g = 0; g < share; g++) {
+                    engine.reset();
+                    stats.add(engine, engine.play(user, computer, moveLimit));
+                }
+                return stats;
+            }));
+        }
+
+        GameStats total = new GameStats();
+        try {
+            for (Future<GameStats> part : parts)
+                total.merge(part.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return total;
+    }
+
+    /** Usage: GameEngine [size] [games] [random|hint] [threads] */
+    public static void main(String[] args) throws InterruptedException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        long games = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000;
+        Player user = args.length > 2 && args[2].equals("hint") ? HINT_USER : RANDOM_USER;
+        int threads = args.length > 3 ? Integer.parseInt(args[3])
+                                      : Runtime.getRuntime().availableProcessors();
+
+        SolverContext ctx = SolverContext.of(size, size);
+        if (!ctx.fitsSolver()) {
+            System.out.println(ctx.tooLargeMessage());
+            return;
+        }
+        FlipEvents.recordIfRequested();
+        Metrics.serveIfRequested();
+
+        long start = System.nanoTime();
+        GameStats stats = run(size, games, threads, 42, user, REGION_COMPUTER, 10 * size * size);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(size + "x" + size + ", " + threads + " threads");
+        System.out.print(stats);
+        System.out.printf("%.2f s, %.0f games/min%n", seconds, games / seconds * 60);
+    }
+}
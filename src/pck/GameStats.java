@@ -0,0 +1,91 @@
+package pck;
+
+/**
+ * Totals over many headless games. One instance per worker, merged at the
+ * end, so counting needs no synchronisation.
+ */
+public class GameStats {
+
+    static final String[] PHASES = {"squares", "halves", "full board"};
+
+    long games;
+    long userWins;
+    long unfinished;              // hit the move limit
+
+    long userMoves;
+    long computerMoves;
+    long shortestGame = Long.MAX_VALUE;
+    long longestGame;
+
+    long handoffs;                // final moves handed to the user
+    long gamesWithHandoff;
+    long passes;                  // computer turns without a move
+
+    final long[] endPhase = new long[PHASES.length];   // phase of finished games
+
+    void add(GameEngine game, GameEngine.Outcome outcome) {
+        games++;
+        if (outcome == GameEngine.Outcome.USER_WON)
+            userWins++;
+        else
+            unfinished++;
+
+        userMoves += game.userMoves;
+        computerMoves += game.computerMoves;
+        long length = game.userMoves + game.computerMoves;
+        shortestGame = Math.min(shortestGame, length);
+        longestGame = Math.max(longestGame, length);
+
+        handoffs += game.handoffs;
+        if (game.handoffs > 0)
+            gamesWithHandoff++;
+        passes += game.passes;
+
+        if (outcome != GameEngine.Outcome.MOVE_LIMIT)
+            endPhase[phase(game.nextRegion)]++;
+    }
+
+    /** 0 = squares (regions 0-3), 1 = halves (4-5), 2 = full board. */
+    static int phase(int region) {
+        return region < 4 ? 0 : region < 6 ? 1 : 2;
+    }
+
+    void merge(GameStats other) {
+        games += other.games;
+        userWins += other.userWins;
+        unfinished += other.unfinished;
+        userMoves += other.userMoves;
+        computerMoves += other.computerMoves;
+        shortestGame = Math.min(shortestGame, other.shortestGame);
+        longestGame = Math.max(longestGame, other.longestGame);
+        handoffs += other.handoffs;
+        gamesWithHandoff += other.gamesWithHandoff;
+        passes += other.passes;
+        for (int i = 0; i < endPhase.length; i++)
+            endPhase[i] += other.endPhase[i];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("games            %d%n", games));
+        sb.append(String.format("user wins        %d (%.1f%%)%n", userWins, percent(userWins, games)));
+        sb.append(String.format("move limit hit   %d%n", unfinished));
+        sb.append(String.format("moves per game   user %.2f, computer %.2f, min %d, max %d%n",
+                (double) userMoves / Math.max(1, games), (double) computerMoves / Math.max(1, games),
+                games == 0 ? 0 : shortestGame, longestGame));
+        sb.append(String.format("final move given %d games (%.1f%%), %d times%n",
+                gamesWithHandoff, percent(gamesWithHandoff, games), handoffs));
+        sb.append(String.format("computer passes  %d%n", passes));
+
+        long finished = games - unfinished;
+        for (int i = 0; i < PHASES.length; i++)
+            sb.append(String.format("ended in %-10s %d (%.1f%%)%n",
+                    PHASES[i], endPhase[i], percent(endPhase[i], finished)));
+        return sb.toString();
+    }
+
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+}
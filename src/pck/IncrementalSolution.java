@@ -0,0 +1,214 @@
+package pck;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The whole board's solution, kept up to date press by press instead of
+ * re-solved every turn.
+ *
+ * The kept press set is the lowest-mask solution, the one
+ * {@link RegionSolver#eliminate} and {@link RegionSearch} return for the
+ * full board. Presses are linear over GF(2): pressing cell p changes the
+ * board by column p of the press matrix A, so the solution changes by
+ * column p of P * A, where P is the pseudo-inverse that picks the lowest
+ * mask. That column is e_p itself, except when p is the lead cell of a
+ * null-space pattern (a first-row cell, see {@link ChaseTransfer#kernelLeads}):
+ * then the pattern is XORed in as well, to keep the lead cleared. So a move
+ * costs one bit flip, or one pattern of rows * cols / 64 words for the few
+ * lead cells, and the first press and press count are read off directly.
+ *
+ * {@link #minimize} switches an instance to the fewest-press solution
+ * instead, when the null space is small enough to walk (EXACT_MINIMUM_LIMIT).
+ * Pressing a cell of that solution leaves the rest of it minimal, so the
+ * computer's moves stay one bit flip; any other press walks the coset again.
+ *
+ * Plus kernel only; other stencils solve through {@link KernelSolver}.
+ * Not thread-safe; hand a {@link #copy} to another thread.
+ */
+public class IncrementalSolution {
+
+    // Null spaces up to this dimension get an exact minimum in minimumRemaining()
+    static final int EXACT_MINIMUM_LIMIT = 10;
+
+    private static final Map<Long, Columns> CACHE = new ConcurrentHashMap<>();
+
+    final int rows;
+    final int cols;
+    private final ChaseTransfer transfer;
+    private final Columns columns;
+    private final long[] presses;   // row-major, transfer.stride longs per row
+    private int count;
+    private boolean minimal;        // kept at the fewest presses, see minimize()
+
+    /** Null-space patterns reduced so each has exactly one lead cell set. */
+    private static final class Columns {
+        final int[] leadIndex;      // per first-row column: its pattern, or -1
+        final long[][] nulls;
+
+        Columns(ChaseTransfer transfer) {
+            int[] leads = transfer.kernelLeads;
+            this.leadIndex = new int[transfer.width];
+            Arrays.fill(leadIndex, -1);
+            for (int k = 0; k < leads.length; k++)
+                leadIndex[leads[k]] = k;
+
+            // Leads descend, and pattern j only has first-row bits up to its
+            // lead, so clearing later leads in order never sets an earlier one
+            this.nulls = new long[leads.length][];
+            for (int k = 0; k < leads.length; k++) {
+                long[] n = transfer.nullPresses[k].clone();
+                for (int j = k + 1; j < leads.length; j++)
+                    if (ChaseTransfer.testBit(n, leads[j]))
+                        ChaseTransfer.xorInto(n, transfer.nullPresses[j]);
+                nulls[k] = n;
+            }
+        }
+    }
+
+    private IncrementalSolution(ChaseTransfer transfer, Columns columns, long[] presses) {
+        this.rows = transfer.height;
+        this.cols = transfer.width;
+        this.transfer = transfer;
+        this.columns = columns;
+        this.presses = presses;
+        this.count = weight(presses);
+    }
+
+    /** Solution of the whole board, or null if it cannot be solved. */
+    static IncrementalSolution of(BitBoard board) {
+        List<int[]> moves = RegionSolver.eliminate(board, 0, board.rows - 1, 0, board.cols - 1);
+        if (moves == null)
+            return null;
+
+        ChaseTransfer transfer = ChaseTransfer.forShape(board.rows, board.cols);
+        long key = ((long) board.rows << 32) | board.cols;
+        Columns columns = CACHE.computeIfAbsent(key, k -> new Columns(transfer));
+        return new IncrementalSolution(transfer, columns, transfer.pressPattern(moves, 0, 0));
+    }
+
+    /** Solution of an int[][] board (1=White, 0=Black), or null if it cannot be solved. */
+    static IncrementalSolution of(int[][] board) {
+        return of(BitBoard.fromArray(board));
+    }
+
+    IncrementalSolution copy() {
+        IncrementalSolution copy = new IncrementalSolution(transfer, columns, presses.clone());
+        copy.minimal = minimal;
+        return copy;
+    }
+
+    /**
+     * Keeps the fewest-press solution from now on, if the null space has at
+     * most EXACT_MINIMUM_LIMIT dimensions; otherwise the lowest-mask one
+     * stays. Returns this.
+     */
+    IncrementalSolution minimize() {
+        if (columns.nulls.length <= EXACT_MINIMUM_LIMIT) {
+            minimal = true;
+            reduce();
+        }
+        return this;
+    }
+
+    // ==========================================
+    // UPDATE: one column of the pseudo-inverse
+    // ==========================================
+    /** Follows a press at (r, c) on the board; undoing a move is the same press again. */
+    void press(int r, int c) {
+        int stride = transfer.stride;
+        long bit = 1L << c;
+        int w = r * stride + (c >>> 6);
+        presses[w] ^= bit;
+        boolean added = (presses[w] & bit) != 0;
+        count += added ? 1 : -1;
+
+        // Dropping a press keeps a minimal solution minimal
+        if (minimal) {
+            if (added)
+                reduce();
+            return;
+        }
+
+        int k = r == 0 ? columns.leadIndex[c] : -1;
+        if (k >= 0) {
+            ChaseTransfer.xorInto(presses, columns.nulls[k]);
+            count = weight(presses);
+        }
+    }
+
+    // ==========================================
+    // QUERIES
+    // ==========================================
+    /**
+     * Presses left in the kept solution; 0 exactly when the board is white.
+     * After {@link #minimize} it is the fewest that solve the board.
+     */
+    int remaining() {
+        return count;
+    }
+
+    /**
+     * First press of the solution in row-major order, packed as
+     * {@code row * cols + col}, or -1 when the board is already white.
+     * Unless minimized, it is the move {@link RegionSearch#firstMove} finds
+     * for the full board.
+     */
+    int firstPress() {
+        int stride = transfer.stride;
+        for (int i = 0; i < presses.length; i++)
+            if (presses[i] != 0)
+                return (i / stride) * cols + ((i % stride) << 6) + Long.numberOfTrailingZeros(presses[i]);
+        return -1;
+    }
+
+    /**
+     * Fewest presses that solve the board: a Gray code walk over the null
+     * space when its dimension is at most EXACT_MINIMUM_LIMIT, otherwise
+     * {@link #remaining()}, which is an upper bound.
+     */
+    int minimumRemaining() {
+        long[][] nulls = columns.nulls;
+        if (minimal || nulls.length == 0 || nulls.length > EXACT_MINIMUM_LIMIT)
+            return count;
+
+        long[] current = presses.clone();
+        int best = count;
+        for (long i = 1; i < (1L << nulls.length); i++) {
+            ChaseTransfer.xorInto(current, nulls[Long.numberOfTrailingZeros(i)]);
+            best = Math.min(best, weight(current));
+        }
+        return best;
+    }
+
+    // Gray code walk over the coset, keeping the lightest solution
+    private void reduce() {
+        long[][] nulls = columns.nulls;
+        long[] current = presses.clone();
+        for (long i = 1; i < (1L << nulls.length); i++) {
+            ChaseTransfer.xorInto(current, nulls[Long.numberOfTrailingZeros(i)]);
+            int w = weight(current);
+            if (w < count) {
+                System.arraycopy(current, 0, presses, 0, presses.length);
+                count = w;
+            }
+        }
+    }
+
+    /** The solution as {row, col} presses in row-major order. */
+    List<int[]> moves() {
+        int stride = transfer.stride;
+        List<int[]> moves = new ArrayList<>(count);
+        for (int r = 0; r < rows; r++)
+            for (int w = 0; w < stride; w++)
+                for (long bits = presses[r * stride + w]; bits != 0; bits &= bits - 1)
+                    moves.add(new int[]{r, (w << 6) + Long.numberOfTrailingZeros(bits)});
+        return moves;
+    }
+
+    private static int weight(long[] pattern) {
+        int w = 0;
+        for (long word : pattern)
+            w += Long.bitCount(word);
+        return w;
+    }
+}
@@ -0,0 +1,424 @@
+package pck;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Region solver for any {@link FlipKernel}.
+ *
+ * The plus kernel goes straight to {@link RegionSolver}. Other kernels that
+ * can be chased keep the same two strategies with the kernel's own chase:
+ * ENUMERATION (and PARALLEL) tries every pattern of the top chaseDepth rows,
+ * lowest first; the other modes solve the chase system, whose unknowns are
+ * those rows and whose equations are the bottom chaseDepth rows. Kernels
+ * that cannot be chased (wrapped, diagonal, knight, ...) solve the full
+ * system of the region instead: one unknown and one equation per cell,
+ * eliminated on BitMatrix's Four Russians path, for regions of up to
+ * {@link SolvabilityOracle#MAX_CELLS} cells. Either system depends only on
+ * the kernel and the region's shape (and, for a wrapped kernel, the board
+ * size: a torus looks the same from every cell), so its pseudo-inverse is
+ * cached.
+ *
+ * Modes: ENUMERATION and PARALLEL enumerate (serially) on kernels that can
+ * be chased. OPTIMAL returns the fewest presses: it solves the full system
+ * and walks its null space as {@link SolutionSpace} does, exactly up to
+ * SolutionSpace.EXACT_SEARCH_LIMIT dimensions and greedily beyond. Above
+ * MAX_CELLS a chased region falls back to ELIMINATION. Every other mode
+ * (ELIMINATION, POLYNOMIAL, GRAY) is ELIMINATION.
+ *
+ * Presses come back row-major, so the first move is in the region's top row.
+ */
+public class KernelSolver {
+
+    // The chase and full systems of one shape differ, so they are kept apart
+    private static final Map<List<Object>, PressSystem> CHASE_CACHE = new ConcurrentHashMap<>();
+    private static final Map<List<Object>, PressSystem> FULL_CACHE = new ConcurrentHashMap<>();
+
+    private KernelSolver() {
+    }
+
+    /**
+     * Presses that turn the region white, or null if it cannot be solved in
+     * isolation. The board is not changed.
+     */
+    static List<int[]> solve(BitBoard board, FlipKernel kernel,
+                             int r1, int r2,
+                             int c1, int c2,
+                             RegionSolver.Mode mode) {
+
+        if (kernel.isPlus())
+            return RegionSolver.solve(board, r1, r2, c1, c2, mode);
+        BitBoard presses = presses(board, kernel, r1, r2, c1, c2, mode);
+        return presses == null ? null : toMoves(presses, r1, r2, c1, c2);
+    }
+
+    /**
+     * True if a height x width region is within reach of {@link #solve}: it
+     * is chased, or its full system has at most SolvabilityOracle.MAX_CELLS
+     * cells.
+     */
+    static boolean fits(FlipKernel kernel, int height, int width) {
+        return kernel.isPlus() || (kernel.isChaseable() && height > kernel.chaseDepth)
+                || (long) height * width <= SolvabilityOracle.MAX_CELLS;
+    }
+
+    /** The solution as a board-shaped press bit set, or null. */
+    static BitBoard presses(BitBoard board, FlipKernel kernel,
+                            int r1, int r2,
+                            int c1, int c2,
+                            RegionSolver.Mode mode) {
+
+        FlipEvents.RegionSolve event = new FlipEvents.RegionSolve();
+        event.begin();
+        BitBoard presses = solveWith(board, kernel, r1, r2, c1, c2, mode);
+        if (event.shouldCommit()) {
+            event.solver = "KernelSolver " + kernel;
+            event.mode = mode.name();
+            event.r1 = r1;
+            event.r2 = r2;
+            event.c1 = c1;
+            event.c2 = c2;
+            // Unsolvable regions are ruled out before any mask is tried
+            if (enumerates(kernel, r2 - r1 + 1, mode))
+                event.masksTried = presses == null ? 0 : freeMask(presses, kernel, r1, c1, c2) + 1;
+            event.solved = presses != null;
+            event.presses = presses == null ? 0 : toMoves(presses, r1, r2, c1, c2).size();
+            event.commit();
+        }
+        return presses;
+    }
+
+    /** First press of the region's solution, packed as {@code row * cols + col}, or -1. */
+    static int firstMove(BitBoard board, FlipKernel kernel, int r1, int r2, int c1, int c2) {
+        BitBoard presses = presses(board, kernel, r1, r2, c1, c2, RegionSolver.Mode.ELIMINATION);
+        if (presses == null)
+            return -1;
+        for (int r = r1; r <= r2; r++)
+            for (int w = c1 >>> 6; w <= c2 >>> 6; w++) {
+                long p = presses.bits[r * presses.words + w] & BitBoard.rangeMask(w, c1, c2);
+                if (p != 0)
+                    return r * board.cols + (w << 6) + Long.numberOfTrailingZeros(p);
+            }
+        return -1;
+    }
+
+    private static BitBoard solveWith(BitBoard board, FlipKernel kernel,
+                                      int r1, int r2,
+                                      int c1, int c2,
+                                      RegionSolver.Mode mode) {
+
+        int height = r2 - r1 + 1;
+        if (enumerates(kernel, height, mode))
+            return SolvabilityOracle.isSolvable(board, kernel, r1, r2, c1, c2)
+                    ? enumerate(board, kernel, r1, r2, c1, c2) : null;
+        boolean chase = kernel.isChaseable() && height > kernel.chaseDepth;
+        if (mode == RegionSolver.Mode.OPTIMAL
+                && (!chase || (long) height * (c2 - c1 + 1) <= SolvabilityOracle.MAX_CELLS))
+            return eliminateFull(board, kernel, r1, r2, c1, c2, true);
+        if (chase)
+            return eliminateChase(board, kernel, r1, r2, c1, c2);
+        return eliminateFull(board, kernel, r1, r2, c1, c2, false);
+    }
+
+    private static boolean enumerates(FlipKernel kernel, int height, RegionSolver.Mode mode) {
+        return kernel.isChaseable() && height > kernel.chaseDepth
+                && (mode == RegionSolver.Mode.ENUMERATION || mode == RegionSolver.Mode.PARALLEL);
+    }
+
+    // ==========================================
+    // TOP ROWS ENUMERATION + CHASE DOWN
+    // ==========================================
+    private static BitBoard enumerate(BitBoard board, FlipKernel kernel,
+                                      int r1, int r2, int c1, int c2) {
+
+        int width = c2 - c1 + 1;
+        int free = kernel.chaseDepth * width;
+        if (free > 62)
+            throw new IllegalArgumentException(
+                    "Region too wide to enumerate with " + kernel + ": " + free + " free cells");
+
+        BitBoard temp = board.copy();
+        BitBoard presses = new BitBoard(board.rows, board.cols);
+        for (long mask = 0; mask < (1L << free); mask++) {
+            temp.copyFrom(board);
+            Arrays.fill(presses.bits, 0L);
+
+            for (int i = 0; i < free; i++)
+                if ((mask & (1L << i)) != 0)
+                    pressCell(temp, presses, kernel, r1 + i / width, c1 + i % width);
+            kernel.chase(temp, r1, r2, c1, c2, presses);
+
+            if (temp.isRegionWhite(r1, r2, c1, c2)) {
+                Metrics.MASKS_ENUMERATED.add(mask + 1);
+                return presses;
+            }
+        }
+        Metrics.MASKS_ENUMERATED.add(1L << free);
+        return null;
+    }
+
+    // ==========================================
+    // CHASE SYSTEM
+    // ==========================================
+    /**
+     * Chases once with no top-row presses, solves for the top rows that
+     * clear the bottom rows it leaves, and replays the chase from them.
+     */
+    private static BitBoard eliminateChase(BitBoard board, FlipKernel kernel,
+                                           int r1, int r2, int c1, int c2) {
+
+        int height = r2 - r1 + 1, width = c2 - c1 + 1, depth = kernel.chaseDepth;
+        PressSystem system = CHASE_CACHE.computeIfAbsent(List.of(kernel, height, width),
+                k -> PressSystem.chase(kernel, height, width));
+
+        BitBoard temp = board.copy();
+        kernel.chase(temp, r1, r2, c1, c2, null);
+        long[] x = system.solve(readCells(temp, r2 - depth + 1, r2, c1, c2));
+        if (x == null)
+            return null;
+
+        temp.copyFrom(board);
+        BitBoard presses = new BitBoard(board.rows, board.cols);
+        for (int i = 0; i < depth * width; i++)
+            if (ChaseTransfer.testBit(x, i))
+                pressCell(temp, presses, kernel, r1 + i / width, c1 + i % width);
+        kernel.chase(temp, r1, r2, c1, c2, presses);
+        return presses;
+    }
+
+    // ==========================================
+    // FULL SYSTEM
+    // ==========================================
+    /**
+     * Solves for every cell of the region at once: presses x with A x = black
+     * cells, the lightest such x when {@code fewest} is set.
+     */
+    private static BitBoard eliminateFull(BitBoard board, FlipKernel kernel,
+                                          int r1, int r2, int c1, int c2, boolean fewest) {
+
+        int height = r2 - r1 + 1, width = c2 - c1 + 1;
+        if ((long) height * width > SolvabilityOracle.MAX_CELLS)
+            throw new IllegalArgumentException(
+                    "Region too large to solve with " + kernel + ": " + height * width + " cells");
+
+        // Clipped stencils see the same region system anywhere on the board,
+        // wrapped ones anywhere on a board of the same size
+        List<Object> key = kernel.wrap
+                ? List.of(kernel, height, width, board.rows, board.cols)
+                : List.of(kernel, height, width);
+        PressSystem system = FULL_CACHE.computeIfAbsent(key, k -> kernel.wrap
+                ? PressSystem.full(kernel, board.rows, board.cols, 0, 0, height, width)
+                : PressSystem.full(kernel, height, width, 0, 0, height, width));
+
+        long[] x = system.solve(readCells(board, r1, r2, c1, c2));
+        if (x == null)
+            return null;
+        if (fewest)
+            x = system.lightest(x);
+
+        BitBoard presses = new BitBoard(board.rows, board.cols);
+        for (int i = 0; i < height * width; i++)
+            if (ChaseTransfer.testBit(x, i))
+                presses.toggle(r1 + i / width, c1 + i % width);
+        return presses;
+    }
+
+    /**
+     * Press matrix of the height x width region at (r1, c1) on a rows x cols
+     * board, cells row-major: column j is the region cells a press at cell j
+     * flips.
+     */
+    static BitMatrix pressMatrix(FlipKernel kernel, int rows, int cols,
+                                 int r1, int c1, int height, int width) {
+        int n = height * width;
+        BitMatrix a = new BitMatrix(n, n);
+        for (int j = 0; j < n; j++)
+            for (int[] cell : kernel.cells(rows, cols, r1 + j / width, c1 + j % width)) {
+                int r = cell[0] - r1, c = cell[1] - c1;
+                if (r >= 0 && r < height && c >= 0 && c < width)
+                    a.flip(r * width + c, j);
+            }
+        return a;
+    }
+
+    // ==========================================
+    // HELPERS
+    // ==========================================
+    /** The top-rows presses as the enumeration mask that produced them. */
+    private static long freeMask(BitBoard presses, FlipKernel kernel, int r1, int c1, int c2) {
+        int width = c2 - c1 + 1;
+        long mask = 0;
+        for (int i = 0; i < kernel.chaseDepth * width; i++)
+            if (!presses.isWhite(r1 + i / width, c1 + i % width))
+                mask |= 1L << i;
+        return mask;
+    }
+
+    private static void pressCell(BitBoard board, BitBoard presses, FlipKernel kernel, int r, int c) {
+        kernel.press(board, r, c);
+        presses.toggle(r, c);
+    }
+
+    /** Black cells of rows r1..r2, columns c1..c2, row-major into one bit vector. */
+    private static long[] readCells(BitBoard board, int r1, int r2, int c1, int c2) {
+        int width = c2 - c1 + 1;
+        long[] v = new long[((r2 - r1 + 1) * width + 63) >>> 6];
+        for (int r = r1; r <= r2; r++)
+            for (int c = c1; c <= c2; c++)
+                if (!board.isWhite(r, c)) {
+                    int i = (r - r1) * width + (c - c1);
+                    v[i >>> 6] |= 1L << i;
+                }
+        return v;
+    }
+
+    private static List<int[]> toMoves(BitBoard presses, int r1, int r2, int c1, int c2) {
+        List<int[]> moves = new ArrayList<>();
+        for (int r = r1; r <= r2; r++)
+            for (int w = c1 >>> 6; w <= c2 >>> 6; w++)
+                for (long p = presses.bits[r * presses.words + w] & BitBoard.rangeMask(w, c1, c2); p != 0; p &= p - 1)
+                    moves.add(new int[]{r, (w << 6) + Long.numberOfTrailingZeros(p)});
+        return moves;
+    }
+
+    // ==========================================
+    // CACHED SYSTEM: A x = b through its pseudo-inverse
+    // ==========================================
+    private static final class PressSystem {
+
+        final int unknowns;
+        final BitMatrix rowOps;   // rowOps * A is in reduced row echelon form
+        final int[] pivots;
+        final long[][] nulls;     // basis of A x = 0, one pattern per free unknown
+
+        private PressSystem(BitMatrix a) {
+            int n = a.rows, m = a.cols;
+            this.unknowns = m;
+
+            // Reduce [A | I]; the right half records the row operations
+            BitMatrix aug = new BitMatrix(n, m + n);
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < m; j++)
+                    if (a.get(i, j))
+                        aug.set(i, j);
+                aug.set(i, m + i);
+            }
+            this.pivots = aug.reduce(m);
+
+            // A free unknown set alone forces the pivots of the rows it appears in
+            boolean[] pivot = new boolean[m];
+            for (int p : pivots)
+                pivot[p] = true;
+            this.nulls = new long[m - pivots.length][];
+            for (int f = 0, k = 0; f < m; f++) {
+                if (pivot[f])
+                    continue;
+                long[] v = new long[(m + 63) >>> 6];
+                v[f >>> 6] |= 1L << f;
+                for (int i = 0; i < pivots.length; i++)
+                    if (aug.get(i, f))
+                        v[pivots[i] >>> 6] |= 1L << pivots[i];
+                nulls[k++] = v;
+            }
+
+            this.rowOps = new BitMatrix(n, n);
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++)
+                    if (aug.get(i, m + j))
+                        rowOps.set(i, j);
+        }
+
+        /** x with A x = b (free unknowns zero), or null if there is none. */
+        long[] solve(long[] b) {
+            long[] y = rowOps.multiply(b);
+            for (int i = pivots.length; i < rowOps.rows; i++)
+                if (ChaseTransfer.testBit(y, i))
+                    return null;
+
+            long[] x = new long[(unknowns + 63) >>> 6];
+            for (int i = 0; i < pivots.length; i++)
+                if (ChaseTransfer.testBit(y, i))
+                    x[pivots[i] >>> 6] |= 1L << pivots[i];
+            return x;
+        }
+
+        /**
+         * Solution with the fewest presses among x plus the null space: a
+         * Gray code walk up to SolutionSpace.EXACT_SEARCH_LIMIT dimensions,
+         * otherwise any null pattern that lowers the count until none does.
+         */
+        long[] lightest(long[] x) {
+            if (nulls.length == 0)
+                return x;
+
+            long[] current = x.clone();
+            long[] best = x.clone();
+            int bestWeight = weight(best);
+
+            if (nulls.length <= SolutionSpace.EXACT_SEARCH_LIMIT) {
+                for (long i = 1; i < (1L << nulls.length); i++) {
+                    ChaseTransfer.xorInto(current, nulls[Long.numberOfTrailingZeros(i)]);
+                    int w = weight(current);
+                    if (w < bestWeight) {
+                        bestWeight = w;
+                        System.arraycopy(current, 0, best, 0, best.length);
+                    }
+                }
+                return best;
+            }
+
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                for (long[] n : nulls) {
+                    ChaseTransfer.xorInto(best, n);
+                    int w = weight(best);
+                    if (w < bestWeight) {
+                        bestWeight = w;
+                        improved = true;
+                    } else {
+                        ChaseTransfer.xorInto(best, n);
+                    }
+                }
+            }
+            return best;
+        }
+
+        private static int weight(long[] pattern) {
+            int w = 0;
+            for (long word : pattern)
+                w += Long.bitCount(word);
+            return w;
+        }
+
+        /**
+         * Unknowns: the top depth rows of a height x width region. Column j
+         * is the bottom depth rows left by pressing only top cell j of an
+         * empty region and chasing it down.
+         */
+        static PressSystem chase(FlipKernel kernel, int height, int width) {
+            int depth = kernel.chaseDepth, n = depth * width;
+            BitMatrix a = new BitMatrix(n, n);
+            BitBoard empty = new BitBoard(height, width);
+
+            for (int j = 0; j < n; j++) {
+                Arrays.fill(empty.bits, 0L);
+                kernel.press(empty, j / width, j % width);
+                kernel.chase(empty, 0, height - 1, 0, width - 1, null);
+                long[] column = readCells(empty, height - depth, height - 1, 0, width - 1);
+                for (int i = 0; i < n; i++)
+                    if (ChaseTransfer.testBit(column, i))
+                        a.set(i, j);
+            }
+            return new PressSystem(a);
+        }
+
+        /**
+         * Unknowns and equations: every cell of the height x width region at
+         * (r1, c1) on a rows x cols board (see {@link #pressMatrix}).
+         */
+        static PressSystem full(FlipKernel kernel, int rows, int cols,
+                                int r1, int c1, int height, int width) {
+            return new PressSystem(pressMatrix(kernel, rows, cols, r1, c1, height, width));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package pck;
+import java.util.*;
+
+/**
+ * Brute-force check of {@link KernelSolver} in every mode.
+ *
+ * Solves random small regions, each placed on a larger scrambled board,
+ * and compares every mode against all 2^cells press sets of the region:
+ * a mode must return null exactly when no press set clears the region,
+ * otherwise presses that clear it, and OPTIMAL must use the fewest. All
+ * kernels and modes share one JVM and so the solver's caches; the modes
+ * run in declaration order on one pass and in reverse on the next, so a
+ * system cached by one mode and misused by another shows up. Prints the
+ * failures per kernel and exits with status 1 if there are any.
+ *
+ * Usage: KernelSolverCheck [regions per pass] [stencil;stencil;...]
+ */
+public class KernelSolverCheck {
+
+    static final int MAX_SIDE = 4;     // regions up to 4x4: 2^16 press sets
+    static final int MARGIN = 2;       // board cells around the region
+
+    static int failures;
+
+    public static void main(String[] args) {
+        int regions = args.length > 0 ? Integer.parseInt(args[0]) : 150;
+        String[] stencils = args.length > 1 ? args[1].split(";")
+                : new String[] {".x./.x./xxx", "diagonal", "torus", "x.x/.x./x.x,wrap"};
+
+        SplittableRandom random = new SplittableRandom(42);
+        List<RegionSolver.Mode> forward = Arrays.asList(RegionSolver.Mode.values());
+        List<RegionSolver.Mode> reverse = new ArrayList<>(forward);
+        Collections.reverse(reverse);
+
+        System.out.printf("%-20s %8s %8s%n", "kernel", "solves", "failed");
+        for (String spec : stencils) {
+            FlipKernel kernel = FlipKernel.parse(spec);
+            int before = failures, solves = 0;
+            for (List<RegionSolver.Mode> order : List.of(forward, reverse, forward))
+                for (int i = 0; i < regions; i++)
+                    solves += checkRegion(kernel, order, random);
+            System.out.printf("%-20s %8d %8d%n", kernel, solves, failures - before);
+        }
+
+        if (failures > 0) {
+            System.out.println("FAIL: " + failures + " wrong solutions");
+            System.exit(1);
+        }
+        System.out.println("OK: every mode matches the brute force");
+    }
+
+    /** One random region solved in each mode of {@code order}; returns the solves made. */
+    private static int checkRegion(FlipKernel kernel, List<RegionSolver.Mode> order, SplittableRandom random) {
+        int height = 2 + random.nextInt(MAX_SIDE - 1), width = 2 + random.nextInt(MAX_SIDE - 1);
+        int rows = height + 2 * MARGIN, cols = width + 2 * MARGIN;
+        int r1 = random.nextInt(rows - height + 1), c1 = random.nextInt(cols - width + 1);
+        int r2 = r1 + height - 1, c2 = c1 + width - 1;
+
+        BitBoard board = new BitBoard(rows, cols);
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++)
+                if (random.nextBoolean())
+                    board.toggle(r, c);
+
+        int fewest = fewestPresses(board, kernel, r1, r2, c1, c2);
+        for (RegionSolver.Mode mode : order) {
+            List<int[]> moves = KernelSolver.solve(board, kernel, r1, r2, c1, c2, mode);
+            String problem = null;
+            if (moves == null) {
+                if (fewest >= 0)
+                    problem = "no solution returned";
+            } else if (fewest < 0) {
+                problem = "solution returned for an unsolvable region";
+            } else if (!clears(board, kernel, moves, r1, r2, c1, c2)) {
+                problem = "solution does not clear the region";
+            } else if (mode == RegionSolver.Mode.OPTIMAL && moves.size() != fewest) {
+                problem = moves.size() + " presses, " + fewest + " needed";
+            }
+            if (problem != null) {
+                failures++;
+                System.out.printf("  %s %s: %dx%d region at (%d,%d) on %dx%d: %s%n",
+                        kernel, mode, height, width, r1, c1, rows, cols, problem);
+            }
+        }
+        return order.size();
+    }
+
+    /** Fewest presses inside the region that clear it, or -1 if none does. */
+    private static int fewestPresses(BitBoard board, FlipKernel kernel, int r1, int r2, int c1, int c2) {
+        int width = c2 - c1 + 1, cells = (r2 - r1 + 1) * width;
+        BitBoard temp = board.copy();
+        int fewest = -1;
+        for (int set = 0; set < (1 << cells); set++) {
+            if (fewest >= 0 && Integer.bitCount(set) >= fewest)
+                continue;
+            temp.copyFrom(board);
+            for (int i = 0; i < cells; i++)
+                if ((set & (1 << i)) != 0)
+                    kernel.press(temp, r1 + i / width, c1 + i % width);
+            if (temp.isRegionWhite(r1, r2, c1, c2))
+                fewest = Integer.bitCount(set);
+        }
+        return fewest;
+    }
+
+    private static boolean clears(BitBoard board, FlipKernel kernel, List<int[]> moves,
+                                  int r1, int r2, int c1, int c2) {
+        BitBoard temp = board.copy();
+        for (int[] m : moves) {
+            if (m[0] < r1 || m[0] > r2 || m[1] < c1 || m[1] > c2)
+                return false;
+            kernel.press(temp, m[0], m[1]);
+        }
+        return temp.isRegionWhite(r1, r2, c1, c2);
+    }
+}
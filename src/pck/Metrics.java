@@ -0,0 +1,295 @@
+package pck;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Process-wide counters and histograms in the Prometheus text format.
+ *
+ * Recording never locks: counters are {@link LongAdder}s, which stripe
+ * updates across cells under contention, and a histogram is one LongAdder
+ * per bucket. Buckets are HDR-style: log2 magnitude plus 3 bits of
+ * sub-bucket, so any value is counted within 12.5% of its size, with 8
+ * buckets per power of two whatever the range. For export the buckets are
+ * summed below powers of two, which fall on bucket edges: values under 2^e
+ * are reported as le = 2^e - 1 for plain counts, and as le = 2^e / scale
+ * for scaled units such as nanoseconds in seconds, where one unit is noise.
+ *
+ * {@code -Dpck.metrics.port=<port>} serves everything at
+ * {@code http://localhost:<port>/metrics} (see {@link #serveIfRequested}).
+ */
+final class Metrics {
+
+    private static final Map<String, Family> FAMILIES = new ConcurrentSkipListMap<>();
+
+    // ==========================================
+    // THE GAME'S METRICS
+    // ==========================================
+    static final Counter GAMES_STARTED = counter("flip_games_started_total", "Games started");
+    static final Counter GAMES_USER_WON = counter("flip_games_finished_total", "Games finished", "outcome", "user_won");
+    static final Counter GAMES_COMPUTER_WON = counter("flip_games_finished_total", "Games finished", "outcome", "computer_won");
+    static final Counter GAMES_MOVE_LIMIT = counter("flip_games_finished_total", "Games finished", "outcome", "move_limit");
+
+    static final Counter USER_MOVES = counter("flip_moves_total", "Presses played", "side", "user");
+    static final Counter COMPUTER_MOVES = counter("flip_moves_total", "Presses played", "side", "computer");
+
+    static final Counter MASKS_ENUMERATED = counter("flip_masks_enumerated_total",
+            "First-row masks tried by the enumeration solvers");
+
+    private static final String SOLVER_HELP = "Time to find the computer's next move, by region phase";
+    static final Histogram SOLVE_SQUARES = latency("flip_solver_latency_seconds", SOLVER_HELP, "phase", "squares");
+    static final Histogram SOLVE_HALVES = latency("flip_solver_latency_seconds", SOLVER_HELP, "phase", "halves");
+    static final Histogram SOLVE_FULL = latency("flip_solver_latency_seconds", SOLVER_HELP, "phase", "full");
+
+    static final Histogram UNDO_DEPTH = histogram("flip_undo_depth",
+            "Moves between the board and the newest move after an undo", 0, 16, 1.0);
+
+    /** Solver latency histogram of region 0..6 (squares, halves, full board). */
+    static Histogram solveLatency(int region) {
+        return region < 4 ? SOLVE_SQUARES : region < 6 ? SOLVE_HALVES : SOLVE_FULL;
+    }
+
+    private Metrics() {
+    }
+
+    // ==========================================
+    // REGISTRY
+    // ==========================================
+    /** One metric name: its HELP and TYPE lines and a series per label set. */
+    private static final class Family {
+        final String name, help, type;
+        final List<Series> series = new CopyOnWriteArrayList<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private abstract static class Series {
+        final String name;
+        final String labels;   // `key="value"`, or empty
+
+        Series(String name, String[] labelPairs) {
+            this.name = name;
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i + 1 < labelPairs.length; i += 2) {
+                if (sb.length() > 0)
+                    sb.append(',');
+                sb.append(labelPairs[i]).append("=\"").append(escape(labelPairs[i + 1])).append('"');
+            }
+            this.labels = sb.toString();
+        }
+
+        abstract void write(StringBuilder out);
+    }
+
+    private static <S extends Series> S register(String name, String help, String type, S series) {
+        Family family = FAMILIES.computeIfAbsent(name, n -> new Family(name, help, type));
+        if (!family.type.equals(type))
+            throw new IllegalArgumentException(name + " is already a " + family.type);
+        family.series.add(series);
+        return series;
+    }
+
+    static Counter counter(String name, String help, String... labelPairs) {
+        return register(name, help, "counter", new Counter(name, labelPairs));
+    }
+
+    /**
+     * Histogram exported with bounds 2^minExp .. 2^maxExp of the recorded
+     * unit, divided by {@code scale}.
+     */
+    static Histogram histogram(String name, String help, int minExp, int maxExp, double scale,
+                               String... labelPairs) {
+        return register(name, help, "histogram", new Histogram(name, labelPairs, minExp, maxExp, scale));
+    }
+
+    /** Histogram of nanoseconds exported in seconds, from about 1 us to 69 s. */
+    static Histogram latency(String name, String help, String... labelPairs) {
+        return histogram(name, help, 10, 36, 1e9, labelPairs);
+    }
+
+    // ==========================================
+    // COUNTER
+    // ==========================================
+    static final class Counter extends Series {
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name, String[] labelPairs) {
+            super(name, labelPairs);
+        }
+
+        void increment() {
+            value.increment();
+        }
+
+        void add(long n) {
+            value.add(n);
+        }
+
+        long get() {
+            return value.sum();
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            line(out, name, labels, null, value.sum());
+        }
+    }
+
+    // ==========================================
+    // HISTOGRAM
+    // ==========================================
+    static final class Histogram extends Series {
+        static final int SUB_BITS = 3;
+        static final int SUB = 1 << SUB_BITS;
+        static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+        private final LongAdder[] counts = new LongAdder[BUCKETS];
+        private final LongAdder sum = new LongAdder();
+        private final int minExp, maxExp;
+        private final double scale;
+
+        private Histogram(String name, String[] labelPairs, int minExp, int maxExp, double scale) {
+            super(name, labelPairs);
+            this.minExp = minExp;
+            this.maxExp = maxExp;
+            this.scale = scale;
+            for (int i = 0; i < BUCKETS; i++)
+                counts[i] = new LongAdder();
+        }
+
+        /** Bucket of v >= 0: v itself below SUB, else magnitude and the next SUB_BITS bits. */
+        static int bucket(long v) {
+            if (v < SUB)
+                return (int) v;
+            int m = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (m - SUB_BITS)) & (SUB - 1);
+            return (m - SUB_BITS + 1) * SUB + sub;
+        }
+
+        void record(long value) {
+            long v = Math.max(0L, value);
+            counts[bucket(v)].increment();
+            sum.add(v);
+        }
+
+        /** Records the time since {@code startNanos} (a System.nanoTime value). */
+        void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        long count() {
+            long n = 0;
+            for (LongAdder c : counts)
+                n += c.sum();
+            return n;
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            // Values below 2^e are exactly the buckets below bucket(2^e)
+            long cumulative = 0;
+            int b = 0;
+            for (int e = minExp; e <= maxExp; e++) {
+                int edge = bucket(1L << e);
+                for (; b < edge; b++)
+                    cumulative += counts[b].sum();
+                double le = scale == 1.0 ? (1L << e) - 1 : (1L << e) / scale;
+                line(out, name + "_bucket", labels, format(le), cumulative);
+            }
+            for (; b < BUCKETS; b++)
+                cumulative += counts[b].sum();
+            line(out, name + "_bucket", labels, "+Inf", cumulative);
+            line(out, name + "_sum", labels, null, sum.sum() / scale);
+            line(out, name + "_count", labels, null, cumulative);
+        }
+    }
+
+    // ==========================================
+    // TEXT EXPOSITION FORMAT
+    // ==========================================
+    /** Every metric in the Prometheus text format (version 0.0.4). */
+    static String scrape() {
+        StringBuilder out = new StringBuilder();
+        for (Family f : FAMILIES.values()) {
+            out.append("# HELP ").append(f.name).append(' ').append(f.help).append('\n');
+            out.append("# TYPE ").append(f.name).append(' ').append(f.type).append('\n');
+            for (Series s : f.series)
+                s.write(out);
+        }
+        return out.toString();
+    }
+
+    private static void line(StringBuilder out, String name, String labels, String le, Object value) {
+        out.append(name);
+        if (!labels.isEmpty() || le != null) {
+            out.append('{').append(labels);
+            if (le != null)
+                out.append(labels.isEmpty() ? "" : ",").append("le=\"").append(le).append('"');
+            out.append('}');
+        }
+        out.append(' ').append(value instanceof Double ? format((Double) value) : value).append('\n');
+    }
+
+    private static String format(double v) {
+        return v == Math.rint(v) && Math.abs(v) < 1e15 ? Long.toString((long) v) : Double.toString(v);
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    // ==========================================
+    // HTTP ENDPOINT
+    // ==========================================
+    /**
+     * Serves {@link #scrape} at /metrics on localhost. The server's threads
+     * are daemons, so it never keeps the game's JVM alive: HttpServer's
+     * dispatcher takes its daemon flag from the thread that starts it.
+     */
+    static HttpServer serve(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "flip-metrics");
+            t.setDaemon(true);
+            return t;
+        }));
+        Thread starter = new Thread(server::start, "flip-metrics-start");
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return server;
+    }
+
+    /** Starts the endpoint when {@code -Dpck.metrics.port=<port>} is set. */
+    static void serveIfRequested() {
+        String port = System.getProperty("pck.metrics.port");
+        if (port == null || port.isEmpty())
+            return;
+        try {
+            HttpServer server = serve(Integer.parseInt(port));
+            System.err.println("Metrics at http://localhost:" + server.getAddress().getPort() + "/metrics");
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Metrics endpoint not started: " + e.getMessage());
+        }
+    }
+}
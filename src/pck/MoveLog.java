@@ -0,0 +1,180 @@
+package pck;
+import java.util.*;
+
+/**
+ * Undo / redo history that stores deltas instead of board snapshots.
+ *
+ * A press is its own inverse, so each entry only needs the pressed cell
+ * (packed as {@code row * cols + col}) plus the caller's small game state
+ * (counters, turn, phase/region) before and after the move, packed into a
+ * long each. Entries live in primitive arrays: [0, size) can be undone and
+ * [size, top) can be redone.
+ *
+ * The log mirrors the board in a {@link BitBoard} and snapshots it every
+ * CHECKPOINT_INTERVAL entries, so jumping back k moves costs at most
+ * min(k, one checkpoint copy + CHECKPOINT_INTERVAL) presses.
+ */
+public class MoveLog {
+
+    static final int CHECKPOINT_INTERVAL = 64;
+
+    private final BitBoard board;     // board after the first `size` entries
+    private final FlipKernel kernel;
+    private int[] presses = new int[64];
+    private long[] before = new long[64];
+    private long[] after = new long[64];
+    private int size;                 // entries that can be undone
+    private int top;                  // entries that can be redone end here
+
+    // checkpoints[j] = board before entry j * CHECKPOINT_INTERVAL
+    private final List<BitBoard> checkpoints = new ArrayList<>();
+
+    MoveLog(BitBoard start) {
+        this(start, FlipKernel.PLUS);
+    }
+
+    MoveLog(BitBoard start, FlipKernel kernel) {
+        this.board = start.copy();
+        this.kernel = kernel;
+    }
+
+    /** Forgets all history and restarts from {@code start}. */
+    void reset(BitBoard start) {
+        board.copyFrom(start);
+        size = 0;
+        top = 0;
+        checkpoints.clear();
+    }
+
+    // ==========================================
+    // RECORD
+    // ==========================================
+    /** Appends a press with the game state around it; drops any redo entries. */
+    void record(int press, long stateBefore, long stateAfter) {
+        if (size == presses.length) {
+            int n = size * 2;
+            presses = Arrays.copyOf(presses, n);
+            before = Arrays.copyOf(before, n);
+            after = Arrays.copyOf(after, n);
+        }
+
+        if (size % CHECKPOINT_INTERVAL == 0) {
+            int j = size / CHECKPOINT_INTERVAL;
+            if (j < checkpoints.size())
+                checkpoints.get(j).copyFrom(board);
+            else
+                checkpoints.add(board.copy());
+        }
+
+        presses[size] = press;
+        before[size] = stateBefore;
+        after[size] = stateAfter;
+        size++;
+        top = size;
+        pressMirror(press);
+    }
+
+    // ==========================================
+    // UNDO / REDO
+    // ==========================================
+    boolean canUndo() {
+        return size > 0;
+    }
+
+    boolean canRedo() {
+        return top > size;
+    }
+
+    /** Steps back one move; returns the index of the undone entry or -1. */
+    int undo() {
+        if (size == 0)
+            return -1;
+        FlipEvents.Undo event = new FlipEvents.Undo();
+        event.begin();
+        size--;
+        pressMirror(presses[size]);
+        Metrics.UNDO_DEPTH.record(top - size);
+        commit(event, 1, 1);
+        return size;
+    }
+
+    /** Re-applies one undone move; returns its entry index or -1. */
+    int redo() {
+        if (top == size)
+            return -1;
+        pressMirror(presses[size]);
+        return size++;
+    }
+
+    /**
+     * Steps back k moves at once and returns the index of the earliest undone
+     * entry (its {@link #stateBefore} is the state to restore), or -1 if k is
+     * out of range. The caller reloads its board from {@link #board()}.
+     */
+    int jumpBack(int k) {
+        if (k <= 0 || k > size)
+            return -1;
+        FlipEvents.Undo event = new FlipEvents.Undo();
+        event.begin();
+        int target = size - k;
+        int replayed;
+
+        // Nearest checkpoint at or after the target, if that is cheaper
+        int j = (target + CHECKPOINT_INTERVAL - 1) / CHECKPOINT_INTERVAL;
+        int cp = j * CHECKPOINT_INTERVAL;
+        if (cp < size && j < checkpoints.size() && cp - target < k) {
+            board.copyFrom(checkpoints.get(j));
+            for (int i = cp - 1; i >= target; i--)
+                pressMirror(presses[i]);
+            replayed = cp - target;
+        } else {
+            for (int i = size - 1; i >= target; i--)
+                pressMirror(presses[i]);
+            replayed = k;
+        }
+
+        size = target;
+        Metrics.UNDO_DEPTH.record(top - size);
+        commit(event, k, replayed);
+        return target;
+    }
+
+    /** Commits the undo's JFR event (a no-op unless a recording enabled it). */
+    private void commit(FlipEvents.Undo event, int undone, int replayed) {
+        if (!event.shouldCommit())
+            return;
+        event.movesUndone = undone;
+        event.pressesReplayed = replayed;
+        event.historyEntries = top;
+        event.checkpoints = checkpoints.size();
+        // Mirror board and checkpoints, plus an int and two longs per entry slot
+        event.snapshotBytes = 8L * board.bits.length * (1 + checkpoints.size()) + 20L * presses.length;
+        event.commit();
+    }
+
+    // ==========================================
+    int press(int i) {
+        return presses[i];
+    }
+
+    long stateBefore(int i) {
+        return before[i];
+    }
+
+    long stateAfter(int i) {
+        return after[i];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Board after the moves that are currently applied. */
+    BitBoard board() {
+        return board;
+    }
+
+    private void pressMirror(int press) {
+        kernel.press(board, press / board.cols, press % board.cols);
+    }
+}
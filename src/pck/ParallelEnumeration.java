@@ -0,0 +1,117 @@
+package pck;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * First-row enumeration split across a ForkJoinPool.
+ *
+ * The mask range is cut in halves until a chunk is small enough to scan on
+ * one thread with that thread's own scratch board. The lowest solving mask
+ * seen so far is shared; any worker whose masks are all above it stops, so
+ * once a solution is found only lower masks are still searched. The result
+ * is therefore the same lowest mask the sequential enumeration returns.
+ */
+public class ParallelEnumeration {
+
+    private static final int LEAF_MASKS = 1 << 10;
+    private static final ThreadLocal<BitBoard> SCRATCH = new ThreadLocal<>();
+
+    static List<int[]> solve(BitBoard board,
+                             int r1, int r2,
+                             int c1, int c2) {
+        return solve(ForkJoinPool.commonPool(), board, r1, r2, c1, c2);
+    }
+
+    static List<int[]> solve(ForkJoinPool pool, BitBoard board,
+                             int r1, int r2,
+                             int c1, int c2) {
+
+        int width = c2 - c1 + 1;
+        if (width > 62)
+            throw new IllegalArgumentException(
+                    "Region too wide to enumerate: " + width);
+
+        AtomicLong best = new AtomicLong(Long.MAX_VALUE);
+        pool.invoke(new Scan(board, r1, r2, c1, c2, 0, 1L << width, best));
+
+        long mask = best.get();
+        if (mask == Long.MAX_VALUE)
+            return null;
+
+        // Replay the winning mask once to list its presses
+        BitBoard temp = board.copy();
+        List<int[]> moves = new ArrayList<>();
+        for (int col = 0; col < width; col++) {
+            if ((mask & (1L << col)) != 0) {
+                temp.press(r1, c1 + col);
+                moves.add(new int[]{r1, c1 + col});
+            }
+        }
+        temp.chase(r1, r2, c1, c2, moves);
+        return moves;
+    }
+
+    // ==========================================
+    // FORK/JOIN TASK OVER A MASK RANGE [lo, hi)
+    // ==========================================
+    @SuppressWarnings("serial")   // never serialized; ForkJoinTask is Serializable by inheritance
+    private static class Scan extends RecursiveAction {
+
+        final BitBoard board;
+        final int r1, r2, c1, c2;
+        final long lo, hi;
+        final AtomicLong best;
+
+        Scan(BitBoard board, int r1, int r2, int c1, int c2,
+             long lo, long hi, AtomicLong best) {
+            this.board = board;
+            this.r1 = r1; this.r2 = r2;
+            this.c1 = c1; this.c2 = c2;
+            this.lo = lo; this.hi = hi;
+            this.best = best;
+        }
+
+        @Override
+        protected void compute() {
+            if (lo >= best.get())
+                return; // a lower mask already solved the region
+
+            if (hi - lo > LEAF_MASKS) {
+                long mid = (lo + hi) >>> 1;
+                invokeAll(new Scan(board, r1, r2, c1, c2, lo, mid, best),
+                          new Scan(board, r1, r2, c1, c2, mid, hi, best));
+                return;
+            }
+
+            BitBoard temp = scratch(board);
+            int width = c2 - c1 + 1;
+
+            long mask = lo;
+            for (; mask < hi && mask < best.get(); mask++) {
+                temp.copyFrom(board);
+                for (int col = 0; col < width; col++)
+                    if ((mask & (1L << col)) != 0)
+                        temp.press(r1, c1 + col);
+                temp.chase(r1, r2, c1, c2, null);
+
+                if (temp.isRegionWhite(r1, r2, c1, c2)) {
+                    best.accumulateAndGet(mask, Math::min);
+                    mask++;
+                    break;
+                }
+            }
+            Metrics.MASKS_ENUMERATED.add(mask - lo);
+        }
+    }
+
+    /** This thread's scratch board, reallocated only when the size changes. */
+    private static BitBoard scratch(BitBoard like) {
+        BitBoard temp = SCRATCH.get();
+        if (temp == null || temp.rows != like.rows || temp.cols != like.cols) {
+            temp = new BitBoard(like.rows, like.cols);
+            SCRATCH.set(temp);
+        }
+        return temp;
+    }
+}
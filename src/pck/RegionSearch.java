@@ -0,0 +1,139 @@
+package pck;
+
+/**
+ * Reusable region solver for the per-turn hot path.
+ *
+ * Every buffer is allocated once in the constructor: the scratch board, the
+ * residual / solution words and the move list, which holds presses packed as
+ * {@code row * cols + col}. Chase presses are undone by pressing them again
+ * (a press is its own inverse) instead of copying the board, and the transfer
+ * tables of the few shapes a game uses are kept in a small local cache.
+ * After warm-up a solve allocates nothing. Not thread-safe; use one per game.
+ */
+public class RegionSearch {
+
+    private static final int SHAPE_CACHE = 8;
+
+    final int rows;
+    final int cols;
+
+    private final BitBoard scratch;
+    private final long[] residual, y, x;
+    private final int[] moves;
+    private int moveCount;
+
+    private final int[] shapeHeight = new int[SHAPE_CACHE];
+    private final int[] shapeWidth = new int[SHAPE_CACHE];
+    private final ChaseTransfer[] shapeTransfer = new ChaseTransfer[SHAPE_CACHE];
+    private int shapes;
+
+    RegionSearch(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.scratch = new BitBoard(rows, cols);
+        int n = (cols + 63) >>> 6;
+        this.residual = new long[n];
+        this.y = new long[n];
+        this.x = new long[n];
+        this.moves = new int[rows * cols];
+    }
+
+    // ==========================================
+    // SOLVE
+    // ==========================================
+    /**
+     * Solves the region of {@code board} (1=White, 0=Black) with the same
+     * lowest-mask solution as {@link RegionSolver#enumerate}. Returns the
+     * number of presses, readable through {@link #move(int)}, or -1 when the
+     * region cannot be solved in isolation.
+     */
+    int solve(int[][] board, int r1, int r2, int c1, int c2) {
+        scratch.load(board);
+        return solveScratch(r1, r2, c1, c2);
+    }
+
+    int solve(BitBoard board, int r1, int r2, int c1, int c2) {
+        scratch.copyFrom(board);
+        return solveScratch(r1, r2, c1, c2);
+    }
+
+    /** First press of the region's solution, packed, or -1 if there is none. */
+    int firstMove(int[][] board, int r1, int r2, int c1, int c2) {
+        return solve(board, r1, r2, c1, c2) > 0 ? moves[0] : -1;
+    }
+
+    int firstMove(BitBoard board, int r1, int r2, int c1, int c2) {
+        return solve(board, r1, r2, c1, c2) > 0 ? moves[0] : -1;
+    }
+
+    /** Packed press i of the last solve. */
+    int move(int i) {
+        return moves[i];
+    }
+
+    private int solveScratch(int r1, int r2, int c1, int c2) {
+        FlipEvents.RegionSolve event = new FlipEvents.RegionSolve();
+        event.begin();
+        int n = chaseSolve(r1, r2, c1, c2);
+        if (event.shouldCommit()) {
+            event.solver = "RegionSearch";
+            event.mode = RegionSolver.Mode.ELIMINATION.name();
+            event.r1 = r1;
+            event.r2 = r2;
+            event.c1 = c1;
+            event.c2 = c2;
+            event.solved = n >= 0;
+            event.presses = Math.max(n, 0);
+            event.commit();
+        }
+        return n;
+    }
+
+    private int chaseSolve(int r1, int r2, int c1, int c2) {
+        int width = c2 - c1 + 1;
+        ChaseTransfer transfer = transfer(r2 - r1 + 1, width);
+
+        // Residual of the bare chase, then put the board back by re-pressing
+        int n = scratch.chase(r1, r2, c1, c2, moves, 0);
+        scratch.readRow(r2, c1, width, residual);
+        reflip(n);
+
+        if (!transfer.firstRow(residual, y, x)) {
+            moveCount = -1;
+            return -1;
+        }
+
+        // First row from x, then the chase
+        n = 0;
+        for (int w = 0; w < x.length; w++) {
+            for (long p = x[w]; p != 0; p &= p - 1) {
+                int c = c1 + (w << 6) + Long.numberOfTrailingZeros(p);
+                scratch.press(r1, c);
+                moves[n++] = r1 * cols + c;
+            }
+        }
+        n = scratch.chase(r1, r2, c1, c2, moves, n);
+        reflip(n);
+
+        moveCount = n;
+        return n;
+    }
+
+    private void reflip(int n) {
+        for (int i = n - 1; i >= 0; i--)
+            scratch.press(moves[i] / cols, moves[i] % cols);
+    }
+
+    private ChaseTransfer transfer(int height, int width) {
+        for (int i = 0; i < shapes; i++)
+            if (shapeHeight[i] == height && shapeWidth[i] == width)
+                return shapeTransfer[i];
+
+        ChaseTransfer t = ChaseTransfer.forShape(height, width);
+        int slot = shapes < SHAPE_CACHE ? shapes++ : (height * 31 + width) & (SHAPE_CACHE - 1);
+        shapeHeight[slot] = height;
+        shapeWidth[slot] = width;
+        shapeTransfer[slot] = t;
+        return t;
+    }
+}
@@ -0,0 +1,105 @@
+package pck;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Allocation budget of the per-turn solver: {@link RegionSearch#firstMove}
+ * and {@link RegionSearch#solve} must allocate nothing once warmed up.
+ *
+ * For each size, solves every region of the structured plan on a set of
+ * scrambled boards (int[][] and BitBoard forms) for a fixed warm-up, so the
+ * solver is compiled before anything is counted. It then reads the thread's
+ * allocated bytes around one window of {@code solves} more calls. Any byte
+ * in that window fails the size, however few solves it came from. Prints
+ * bytes per solve and exits with status 1 on a failure, so it can gate a
+ * build.
+ *
+ * Usage: RegionSearchAllocationCheck [solves] [sizes,...]
+ */
+public class RegionSearchAllocationCheck {
+
+    static final int BOARDS = 16;
+    static final int WARM_UP_SOLVES = 500_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static volatile long sink;
+
+    public static void main(String[] args) {
+        int solves = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int[] sizes = args.length > 1
+                ? Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[] {4, 6, 10, 32, 64};
+
+        System.out.printf("%6s %12s %12s %14s%n", "size", "solves", "bytes", "bytes/solve");
+        boolean failed = false;
+        for (int n : sizes) {
+            Fixture fixture = new Fixture(n);
+            fixture.run(WARM_UP_SOLVES);
+            long bytes = fixture.allocatedBytes(solves);
+            System.out.printf("%6d %12d %12d %14.3f%n", n, solves, bytes, (double) bytes / solves);
+            failed |= bytes != 0;
+        }
+
+        if (failed) {
+            System.out.println("FAIL: RegionSearch allocates after warm-up");
+            System.exit(1);
+        }
+        System.out.println("OK: no allocation per solve");
+    }
+
+    /** One search and its scrambled boards for an n x n game. */
+    private static final class Fixture {
+        final RegionSearch search;
+        final int[][] regions;
+        final int[][][] arrays = new int[BOARDS][][];
+        final BitBoard[] bitBoards = new BitBoard[BOARDS];
+
+        Fixture(int n) {
+            int half = n / 2;
+            search = new RegionSearch(n, n);
+            regions = new int[][] {
+                {0, half - 1, 0, half - 1},
+                {0, half - 1, half, n - 1},
+                {half, n - 1, 0, half - 1},
+                {half, n - 1, half, n - 1},
+                {0, half - 1, 0, n - 1},
+                {half, n - 1, 0, n - 1},
+                {0, n - 1, 0, n - 1}
+            };
+            SplittableRandom random = new SplittableRandom(n);
+            for (int i = 0; i < BOARDS; i++) {
+                BitBoard b = new BitBoard(n, n);
+                for (int k = 0; k < 2 * n; k++)
+                    b.press(random.nextInt(n), random.nextInt(n));
+                bitBoards[i] = b;
+                arrays[i] = b.toArray();
+            }
+        }
+
+        /** Bytes the thread allocates over {@code solves} calls, less the cost of reading the counter. */
+        long allocatedBytes(int solves) {
+            long threadId = Thread.currentThread().threadId();
+            long before = THREADS.getThreadAllocatedBytes(threadId);
+            long baseline = THREADS.getThreadAllocatedBytes(threadId) - before;
+            long start = THREADS.getThreadAllocatedBytes(threadId);
+            run(solves);
+            long bytes = THREADS.getThreadAllocatedBytes(threadId) - start - baseline;
+            return Math.max(bytes, 0);
+        }
+
+        /** {@code solves} searches, cycling through boards, board forms and regions. */
+        void run(int solves) {
+            long acc = 0;
+            for (int i = 0; i < solves; i++) {
+                int[] r = regions[i % regions.length];
+                int b = (i / regions.length) % BOARDS;
+                acc += (i & 1) == 0
+                        ? search.firstMove(arrays[b], r[0], r[1], r[2], r[3])
+                        : search.solve(bitBoards[b], r[0], r[1], r[2], r[3]);
+            }
+            sink = acc;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package pck;
+import java.util.*;
+
+/**
+ * Region solver shared by the console solvers and the JavaFX games.
+ * Works on a {@link BitBoard} so every chase pass is word-level.
+ */
+public class RegionSolver {
+
+    /**
+     * ENUMERATION tries all 2^width first-row masks.
+     * ELIMINATION solves the width x width chase system over GF(2) instead,
+     * which is polynomial in the region size and has no width limit.
+     * Both return the solution with the lowest first-row mask.
+     * PARALLEL is ENUMERATION split across a ForkJoinPool
+     * (see {@link ParallelEnumeration}) and returns the same moves.
+     * OPTIMAL returns the solution with the fewest presses instead
+     * (see {@link SolutionSpace}).
+     * POLYNOMIAL solves the chase system in GF(2)[t] (see
+     * {@link ChebyshevSolver}); it needs no transfer matrix, which suits
+     * very wide regions, and matches ELIMINATION wherever the solution is
+     * unique.
+     * GRAY enumerates the masks in Gray code order with one XOR per mask
+     * instead of a chase (see {@link #gray}); it matches ENUMERATION
+     * wherever the solution is unique.
+     */
+    enum Mode { ENUMERATION, PARALLEL, ELIMINATION, OPTIMAL, POLYNOMIAL, GRAY }
+
+    /**
+     * Most free cells (width times chase depth) an enumeration mode is
+     * asked to try every mask of; past this {@link SolverContext#solve}
+     * uses ELIMINATION, as 2^cells masks would not finish in time.
+     */
+    static final int MAX_ENUMERATED_CELLS = 20;
+
+    /**
+     * Returns the presses that turn the region white (first row, then the
+     * chase row by row), or null if the region cannot be solved in isolation.
+     * The board is not changed.
+     */
+    static List<int[]> solve(BitBoard board,
+                             int r1, int r2,
+                             int c1, int c2,
+                             Mode mode) {
+
+        FlipEvents.RegionSolve event = new FlipEvents.RegionSolve();
+        event.begin();
+        List<int[]> moves = solveWith(board, r1, r2, c1, c2, mode);
+        if (event.shouldCommit()) {
+            event.solver = "RegionSolver";
+            event.mode = mode.name();
+            event.r1 = r1;
+            event.r2 = r2;
+            event.c1 = c1;
+            event.c2 = c2;
+            // Unsolvable regions are ruled out before any mask is tried
+            if (mode == Mode.ENUMERATION || mode == Mode.PARALLEL)
+                event.masksTried = moves == null ? 0 : firstRowMask(moves, r1, c1) + 1;
+            else if (mode == Mode.GRAY)
+                event.masksTried = moves == null ? 0 : grayRank(firstRowMask(moves, r1, c1)) + 1;
+            event.solved = moves != null;
+            event.presses = moves == null ? 0 : moves.size();
+            event.commit();
+        }
+        return moves;
+    }
+
+    private static List<int[]> solveWith(BitBoard board,
+                                         int r1, int r2,
+                                         int c1, int c2,
+                                         Mode mode) {
+
+        // Enumeration would try every mask before giving up on a hopeless region
+        if ((mode == Mode.ENUMERATION || mode == Mode.PARALLEL || mode == Mode.GRAY)
+                && !SolvabilityOracle.forShape(r2 - r1 + 1, c2 - c1 + 1).isSolvable(board, r1, c1))
+            return null;
+
+        switch (mode) {
+            case PARALLEL:
+                return ParallelEnumeration.solve(board, r1, r2, c1, c2);
+            case ELIMINATION:
+                return eliminate(board, r1, r2, c1, c2);
+            case OPTIMAL:
+                SolutionSpace space = SolutionSpace.of(board, r1, r2, c1, c2);
+                return space == null ? null : space.minimumPresses();
+            case POLYNOMIAL:
+                return ChebyshevSolver.solve(board, r1, r2, c1, c2);
+            case GRAY:
+                return gray(board, r1, r2, c1, c2);
+            default:
+                return enumerate(board, r1, r2, c1, c2);
+        }
+    }
+
+    /** The first-row presses of a solution as a mask, bit j = column c1 + j. */
+    static long firstRowMask(List<int[]> moves, int r1, int c1) {
+        long mask = 0;
+        for (int[] m : moves)
+            if (m[0] == r1)
+                mask |= 1L << (m[1] - c1);
+        return mask;
+    }
+
+    // ==========================================
+    // FIRST ROW ENUMERATION + CHASE DOWN
+    // ==========================================
+    /**
+     * Tries every first-row mask of the region (lowest mask first), chases the
+     * remaining rows down and returns the presses of the first mask that turns
+     * the whole region white, or null if no mask does. The board is not changed.
+     */
+    static List<int[]> enumerate(BitBoard board,
+                                 int r1, int r2,
+                                 int c1, int c2) {
+
+        int width = c2 - c1 + 1;
+        if (width > 62)
+            throw new IllegalArgumentException(
+                    "Region too wide to enumerate: " + width);
+
+        BitBoard temp = new BitBoard(board.rows, board.cols);
+
+        for (long mask = 0; mask < (1L << width); mask++) {
+
+            temp.copyFrom(board);
+            List<int[]> moves = new ArrayList<>();
+
+            // First row guess
+            for (int col = 0; col < width; col++) {
+                if ((mask & (1L << col)) != 0) {
+                    temp.press(r1, c1 + col);
+                    moves.add(new int[]{r1, c1 + col});
+                }
+            }
+
+            // Chase down
+            temp.chase(r1, r2, c1, c2, moves);
+
+            if (temp.isRegionWhite(r1, r2, c1, c2)) {
+                Metrics.MASKS_ENUMERATED.add(mask + 1);
+                return moves;
+            }
+        }
+
+        Metrics.MASKS_ENUMERATED.add(1L << width);
+        return null;
+    }
+
+    // ==========================================
+    // GRAY CODE ENUMERATION
+    // ==========================================
+    /**
+     * ENUMERATION without a chase per mask. The chase is linear, so the
+     * bottom row it leaves is residual(0) + A * mask with A the shape's
+     * transfer matrix (see {@link ChaseTransfer}). Visiting the masks in
+     * Gray code order changes one bit j per step, which updates the
+     * residual with one XOR of column j. The region is chased once more, for
+     * the first mask that leaves the bottom row white: the first solution in
+     * Gray code order, not necessarily the lowest mask.
+     */
+    static List<int[]> gray(BitBoard board,
+                            int r1, int r2,
+                            int c1, int c2) {
+
+        int width = c2 - c1 + 1;
+        if (width > 62)
+            throw new IllegalArgumentException(
+                    "Region too wide to enumerate: " + width);
+
+        // Column j: bottom row left by pressing first-row cell j alone
+        BitMatrix a = ChaseTransfer.forShape(r2 - r1 + 1, width).matrix;
+        long[] columns = new long[width];
+        for (int j = 0; j < width; j++)
+            for (int i = 0; i < width; i++)
+                if (a.get(i, j))
+                    columns[j] |= 1L << i;
+
+        BitBoard temp = board.copy();
+        temp.chase(r1, r2, c1, c2, null);
+        long[] row = new long[1];
+        temp.readRow(r2, c1, width, row);
+        long residual = row[0];
+
+        long mask = 0, step = 0;
+        while (residual != 0) {
+            if (++step == 1L << width) {
+                Metrics.MASKS_ENUMERATED.add(step);
+                return null;
+            }
+            int j = Long.numberOfTrailingZeros(step);
+            mask ^= 1L << j;
+            residual ^= columns[j];
+        }
+        Metrics.MASKS_ENUMERATED.add(step + 1);
+
+        // Replay: first row from the mask, then chase
+        temp.copyFrom(board);
+        List<int[]> moves = new ArrayList<>();
+        for (int col = 0; col < width; col++) {
+            if ((mask & (1L << col)) != 0) {
+                temp.press(r1, c1 + col);
+                moves.add(new int[]{r1, c1 + col});
+            }
+        }
+        temp.chase(r1, r2, c1, c2, moves);
+
+        return moves;
+    }
+
+    /** Position of a mask in Gray code order: the inverse of i ^ (i >>> 1). */
+    static long grayRank(long mask) {
+        long rank = mask;
+        for (long shift = mask >>> 1; shift != 0; shift >>>= 1)
+            rank ^= shift;
+        return rank;
+    }
+
+    // ==========================================
+    // GAUSSIAN ELIMINATION OVER GF(2)
+    // ==========================================
+    /**
+     * Chases the region once with no first-row presses, solves
+     * A * x = residual for the first row with the cached transfer table of the
+     * region shape and replays the chase from x.
+     * Returns null when the residual is outside the column space of A.
+     */
+    static List<int[]> eliminate(BitBoard board,
+                                 int r1, int r2,
+                                 int c1, int c2) {
+
+        int height = r2 - r1 + 1;
+        int width = c2 - c1 + 1;
+        ChaseTransfer transfer = ChaseTransfer.forShape(height, width);
+
+        // Residual left on the bottom row when the first row is not pressed
+        BitBoard temp = board.copy();
+        temp.chase(r1, r2, c1, c2, null);
+        long[] residual = new long[(width + 63) >>> 6];
+        temp.readRow(r2, c1, width, residual);
+
+        long[] x = transfer.firstRow(residual);
+        if (x == null)
+            return null;
+
+        // Replay: first row from x, then chase
+        temp.copyFrom(board);
+        List<int[]> moves = new ArrayList<>();
+        for (int col = 0; col < width; col++) {
+            if ((x[col >>> 6] & (1L << col)) != 0) {
+                temp.press(r1, c1 + col);
+                moves.add(new int[]{r1, c1 + col});
+            }
+        }
+        temp.chase(r1, r2, c1, c2, moves);
+
+        return moves;
+    }
+}
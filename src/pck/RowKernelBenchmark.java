@@ -0,0 +1,85 @@
+package pck;
+import java.util.*;
+
+/**
+ * Scalar vs SIMD row kernels on wide boards.
+ *
+ * For each width, times a full-board chase (every row pressed under the
+ * black cells of the row above) and a region check over a white board, once
+ * with the scalar loops and once with {@link VectorRowKernels}, and prints
+ * the speedup. Run with {@code --add-modules jdk.incubator.vector}; without
+ * it only the scalar figures are printed.
+ *
+ * Usage: RowKernelBenchmark [rows] [measureMs] [widths,...]
+ */
+public class RowKernelBenchmark {
+
+    static volatile long sink;
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        long measureMs = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int[] widths = args.length > 2
+                ? Arrays.stream(args[2].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[] {64, 256, 1024, 4096};
+
+        System.out.println("SIMD kernels " + (RowKernels.VECTOR
+                ? "available, " + VectorRowKernels.LANES + " lanes" : "not available"));
+        System.out.printf("%-14s %6s %14s %14s %8s%n", "case", "width", "scalar ns/op", "simd ns/op", "speedup");
+
+        for (int cols : widths) {
+            BitBoard start = scrambled(rows, cols, new SplittableRandom(cols));
+            BitBoard scalar = new BitBoard(rows, cols, false);
+            BitBoard simd = new BitBoard(rows, cols, true);
+
+            report("chase", cols,
+                    time(measureMs, () -> chase(scalar, start)),
+                    simd.vector ? time(measureMs, () -> chase(simd, start)) : Double.NaN);
+
+            BitBoard whiteScalar = new BitBoard(rows, cols, false);
+            BitBoard whiteSimd = new BitBoard(rows, cols, true);
+            report("region check", cols,
+                    time(measureMs, () -> whiteScalar.isRegionWhite(0, rows - 1, 0, cols - 1) ? 1 : 0),
+                    simd.vector ? time(measureMs, () -> whiteSimd.isRegionWhite(0, rows - 1, 0, cols - 1) ? 1 : 0)
+                                : Double.NaN);
+        }
+    }
+
+    private static long chase(BitBoard board, BitBoard start) {
+        board.copyFrom(start);
+        board.chase(0, board.rows - 1, 0, board.cols - 1, null);
+        return board.bits[board.bits.length - 1];
+    }
+
+    private static BitBoard scrambled(int rows, int cols, SplittableRandom random) {
+        BitBoard b = new BitBoard(rows, cols);
+        for (int i = 0; i < b.bits.length; i++)
+            b.bits[i] = random.nextLong();
+        for (int r = 0; r < rows; r++)
+            b.bits[r * b.words + b.words - 1] &= b.lastMask;
+        return b;
+    }
+
+    /** Average ns per call after a warm-up of the same length. */
+    private static double time(long measureMs, java.util.function.LongSupplier op) {
+        for (int pass = 0; pass < 2; pass++) {
+            long ops = 0, acc = 0;
+            long t0 = System.nanoTime(), end = t0 + measureMs * 1_000_000L, now;
+            do {
+                for (int i = 0; i < 16; i++)
+                    acc += op.getAsLong();
+                ops += 16;
+            } while ((now = System.nanoTime()) < end);
+            sink = acc;
+            if (pass == 1)
+                return (double) (now - t0) / ops;
+        }
+        throw new AssertionError();
+    }
+
+    private static void report(String name, int cols, double scalarNs, double simdNs) {
+        System.out.printf("%-14s %6d %14.0f %14s %8s%n", name, cols, scalarNs,
+                Double.isNaN(simdNs) ? "-" : String.format("%.0f", simdNs),
+                Double.isNaN(simdNs) ? "-" : String.format("%.2fx", scalarNs / simdNs));
+    }
+}
@@ -0,0 +1,85 @@
+package pck;
+
+/**
+ * Word-level row operations behind the chase and the region checks.
+ *
+ * Each operation has a scalar loop and a SIMD version in
+ * {@link VectorRowKernels}, which processes several words per instruction
+ * through {@code jdk.incubator.vector}. The SIMD path is used when the module
+ * is present at run time ({@code --add-modules jdk.incubator.vector}) and the
+ * row is at least {@link #MIN_VECTOR_WORDS} words wide; on narrower rows the
+ * vector setup costs more than it saves. {@code -Dpck.vector=false} forces
+ * the scalar path. Compiling the package needs the module too: the Eclipse
+ * project lists it among the JRE container's root modules, and a command-line
+ * build passes the same flag to javac.
+ *
+ * Row patterns are passed in a padded buffer: word w of the row is at
+ * {@code pattern[PAD + w]}, so the neighbour words a press spreads into can be
+ * read at fixed offsets without bounds checks.
+ */
+final class RowKernels {
+
+    static final int PAD = 2;
+    static final int MIN_VECTOR_WORDS = 8;
+
+    static final boolean VECTOR = vectorAvailable();
+
+    private RowKernels() {
+    }
+
+    private static boolean vectorAvailable() {
+        if (!Boolean.parseBoolean(System.getProperty("pck.vector", "true")))
+            return false;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return false;
+        try {
+            return VectorRowKernels.LANES > 1;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    // ==========================================
+    // PRESS A ROW PATTERN
+    // ==========================================
+    /**
+     * For words lo..hi: row ^= p ^ (p << 1) ^ (p >>> 1), with the shifts
+     * carried across word boundaries, and p is XORed into the rows above and
+     * below ({@code above} / {@code below} are row offsets into bits, or -1
+     * at the board edge). p is {@code pattern[PAD + w]}. Bits past the last
+     * column are not masked here.
+     */
+    static void pressRow(long[] bits, int base, int above, int below,
+                         long[] pattern, int lo, int hi, boolean vector) {
+        int w = lo;
+        if (vector && hi - lo + 1 >= MIN_VECTOR_WORDS)
+            w = VectorRowKernels.pressRow(bits, base, above, below, pattern, lo, hi);
+
+        for (; w <= hi; w++) {
+            long p = pattern[PAD + w];
+            bits[base + w] ^= p ^ (p << 1) ^ (p >>> 1)
+                    ^ (pattern[PAD + w - 1] >>> 63) ^ (pattern[PAD + w + 1] << 63);
+            if (above >= 0)
+                bits[above + w] ^= p;
+            if (below >= 0)
+                bits[below + w] ^= p;
+        }
+    }
+
+    // ==========================================
+    // ZERO CHECK
+    // ==========================================
+    /** True if any of {@code a[from..to)} is non-zero. */
+    static boolean anySet(long[] a, int from, int to, boolean vector) {
+        int i = from;
+        if (vector && to - from >= MIN_VECTOR_WORDS) {
+            i = VectorRowKernels.firstSetChunk(a, from, to);
+            if (i < 0)
+                return true;
+        }
+        for (; i < to; i++)
+            if (a[i] != 0)
+                return true;
+        return false;
+    }
+}
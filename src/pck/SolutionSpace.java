@@ -0,0 +1,146 @@
+package pck;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * All press sets that solve one region: a particular solution plus any
+ * combination of the null-space patterns of the region's press matrix.
+ * On shapes where the press matrix is invertible the space has a single point.
+ */
+public class SolutionSpace implements Iterable<List<int[]>> {
+
+    // Above this dimension the minimum is searched greedily instead of exactly
+    static final int EXACT_SEARCH_LIMIT = 24;
+
+    final int r1, c1;
+    final ChaseTransfer transfer;
+    final long[] particular;  // row-major press pattern, transfer.stride longs per row
+
+    private SolutionSpace(int r1, int c1, ChaseTransfer transfer, long[] particular) {
+        this.r1 = r1;
+        this.c1 = c1;
+        this.transfer = transfer;
+        this.particular = particular;
+    }
+
+    /** Solution space of the region, or null if it cannot be solved in isolation. */
+    static SolutionSpace of(BitBoard board, int r1, int r2, int c1, int c2) {
+        List<int[]> moves = RegionSolver.eliminate(board, r1, r2, c1, c2);
+        if (moves == null)
+            return null;
+
+        ChaseTransfer transfer = ChaseTransfer.forShape(r2 - r1 + 1, c2 - c1 + 1);
+        return new SolutionSpace(r1, c1, transfer, transfer.pressPattern(moves, r1, c1));
+    }
+
+    /** Dimension of the null space; there are 2^dimension solutions. */
+    int dimension() {
+        return transfer.nullPresses.length;
+    }
+
+    /** Press patterns (region coordinates) that leave every cell unchanged. */
+    long[][] nullSpaceBasis() {
+        return transfer.nullPresses;
+    }
+
+    // ==========================================
+    // MINIMUM-PRESS SOLUTION
+    // ==========================================
+    /**
+     * Solution with the fewest presses. Walks all 2^dimension cosets in Gray
+     * code order (one pattern XOR per step); dimension 0 returns directly.
+     * Beyond EXACT_SEARCH_LIMIT it keeps applying any null pattern that lowers
+     * the count until none does, which is not guaranteed to be optimal.
+     */
+    List<int[]> minimumPresses() {
+        long[][] nulls = transfer.nullPresses;
+        if (nulls.length == 0)
+            return toMoves(particular);
+
+        long[] current = particular.clone();
+        long[] best = current.clone();
+        int bestWeight = weight(current);
+
+        if (nulls.length <= EXACT_SEARCH_LIMIT) {
+            for (long i = 1; i < (1L << nulls.length); i++) {
+                ChaseTransfer.xorInto(current, nulls[Long.numberOfTrailingZeros(i)]);
+                int w = weight(current);
+                if (w < bestWeight) {
+                    bestWeight = w;
+                    System.arraycopy(current, 0, best, 0, best.length);
+                }
+            }
+            return toMoves(best);
+        }
+
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (long[] n : nulls) {
+                ChaseTransfer.xorInto(best, n);
+                int w = weight(best);
+                if (w < bestWeight) {
+                    bestWeight = w;
+                    improved = true;
+                } else {
+                    ChaseTransfer.xorInto(best, n);
+                }
+            }
+        }
+        return toMoves(best);
+    }
+
+    // ==========================================
+    // LAZY ENUMERATION OF ALL SOLUTIONS
+    // ==========================================
+    /** Every solution once, in Gray code order over the null-space basis. */
+    @Override
+    public Iterator<List<int[]>> iterator() {
+        long[][] nulls = transfer.nullPresses;
+        long count = nulls.length >= 63 ? Long.MAX_VALUE : 1L << nulls.length;
+
+        return new Iterator<List<int[]>>() {
+            private final long[] current = particular.clone();
+            private long index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < count;
+            }
+
+            @Override
+            public List<int[]> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                if (index > 0)
+                    ChaseTransfer.xorInto(current, nulls[Long.numberOfTrailingZeros(index)]);
+                index++;
+                return toMoves(current);
+            }
+        };
+    }
+
+    Stream<List<int[]>> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // ==========================================
+    private static int weight(long[] pattern) {
+        int w = 0;
+        for (long word : pattern)
+            w += Long.bitCount(word);
+        return w;
+    }
+
+    /** Row-major board coordinates of a press pattern. */
+    private List<int[]> toMoves(long[] pattern) {
+        int stride = transfer.stride;
+        List<int[]> moves = new ArrayList<>();
+        for (int r = 0; r < transfer.height; r++)
+            for (int w = 0; w < stride; w++)
+                for (long p = pattern[r * stride + w]; p != 0; p &= p - 1)
+                    moves.add(new int[]{r1 + r, c1 + (w << 6) + Long.numberOfTrailingZeros(p)});
+        return moves;
+    }
+}
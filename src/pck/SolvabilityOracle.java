@@ -0,0 +1,137 @@
+package pck;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Tells whether a region can be solved in isolation without solving it.
+ *
+ * The region's black cells b are reachable exactly when b lies in the
+ * column space of its press matrix A, that is when y . b = 0 for every y
+ * in the left null space of A. Those y are the checks: a region is
+ * solvable when each check covers an even number of black cells. Most
+ * shapes have none or a handful, so the answer costs a few popcounts
+ * instead of a search that tries every mask before giving up.
+ *
+ * For the plus kernel A is symmetric, so the checks are the null-space
+ * press patterns {@link ChaseTransfer} already holds. Other stencils take
+ * the null space of A's transpose, built once per shape (and, on a torus,
+ * per board size).
+ */
+public class SolvabilityOracle {
+
+    // Other stencils build the full cell system; above this many cells there is
+    // no oracle, and KernelSolver refuses to solve
+    static final int MAX_CELLS = 4096;
+
+    private static final Map<List<Object>, SolvabilityOracle> CACHE = new ConcurrentHashMap<>();
+
+    final int height;
+    final int width;
+    final int stride;         // longs per row of a check
+    final long[][] checks;    // region-shaped, row-major cell masks
+
+    private SolvabilityOracle(int height, int width, long[][] checks) {
+        this.height = height;
+        this.width = width;
+        this.stride = (width + 63) >>> 6;
+        this.checks = checks;
+    }
+
+    /** Oracle for a height x width region under the plus kernel. */
+    static SolvabilityOracle forShape(int height, int width) {
+        return CACHE.computeIfAbsent(List.of(FlipKernel.PLUS, height, width), k -> {
+            ChaseTransfer transfer = ChaseTransfer.forShape(height, width);
+            return new SolvabilityOracle(height, width, transfer.nullPresses);
+        });
+    }
+
+    /**
+     * Oracle for the region on a rows x cols board under {@code kernel}, or
+     * null when it has more than MAX_CELLS cells.
+     */
+    static SolvabilityOracle of(FlipKernel kernel, int rows, int cols, int r1, int r2, int c1, int c2) {
+        int height = r2 - r1 + 1, width = c2 - c1 + 1;
+        if (kernel.isPlus())
+            return forShape(height, width);
+        if ((long) height * width > MAX_CELLS)
+            return null;
+
+        // Clipped stencils see the same region system anywhere on the board,
+        // wrapped ones anywhere on a board of the same size
+        List<Object> key = kernel.wrap
+                ? List.of(kernel, height, width, rows, cols)
+                : List.of(kernel, height, width);
+        return CACHE.computeIfAbsent(key, k -> kernel.wrap
+                ? leftNullSpace(KernelSolver.pressMatrix(kernel, rows, cols, 0, 0, height, width), height, width)
+                : leftNullSpace(KernelSolver.pressMatrix(kernel, height, width, 0, 0, height, width), height, width));
+    }
+
+    private static SolvabilityOracle leftNullSpace(BitMatrix a, int height, int width) {
+        List<long[]> basis = a.transpose().nullSpace();
+        int stride = (width + 63) >>> 6;
+        long[][] checks = new long[basis.size()][];
+        for (int k = 0; k < checks.length; k++) {
+            long[] y = basis.get(k);
+            checks[k] = new long[height * stride];
+            for (int i = 0; i < height * width; i++)
+                if (ChaseTransfer.testBit(y, i))
+                    checks[k][(i / width) * stride + ((i % width) >>> 6)] |= 1L << (i % width);
+        }
+        return new SolvabilityOracle(height, width, checks);
+    }
+
+    /**
+     * False only when the region certainly cannot be solved in isolation;
+     * true also when no oracle applies (see {@link #of}).
+     */
+    static boolean isSolvable(BitBoard board, FlipKernel kernel, int r1, int r2, int c1, int c2) {
+        SolvabilityOracle oracle = of(kernel, board.rows, board.cols, r1, r2, c1, c2);
+        return oracle == null || oracle.isSolvable(board, r1, c1);
+    }
+
+    /** As {@link #isSolvable(BitBoard, FlipKernel, int, int, int, int)} on an int[][] board (1=White, 0=Black). */
+    static boolean isSolvable(int[][] board, FlipKernel kernel, int r1, int r2, int c1, int c2) {
+        SolvabilityOracle oracle = of(kernel, board.length, board[0].length, r1, r2, c1, c2);
+        return oracle == null || oracle.isSolvable(board, r1, c1);
+    }
+
+    // ==========================================
+    // PARITY CHECKS
+    // ==========================================
+    /** Number of checks; 0 means every state of the region is solvable. */
+    int checkCount() {
+        return checks.length;
+    }
+
+    /** Whether the region with top-left cell (r1, c1) of {@code board} can be solved. */
+    boolean isSolvable(BitBoard board, int r1, int c1) {
+        if (checks.length == 0)
+            return true;
+
+        long[] row = new long[stride];
+        int[] parity = new int[checks.length];
+        for (int r = 0; r < height; r++) {
+            board.readRow(r1 + r, c1, width, row);
+            for (int k = 0; k < checks.length; k++)
+                for (int w = 0; w < stride; w++)
+                    parity[k] += Long.bitCount(checks[k][r * stride + w] & row[w]);
+        }
+        for (int p : parity)
+            if ((p & 1) != 0)
+                return false;
+        return true;
+    }
+
+    boolean isSolvable(int[][] board, int r1, int c1) {
+        for (long[] check : checks) {
+            int parity = 0;
+            for (int r = 0; r < height; r++)
+                for (int w = 0; w < stride; w++)
+                    for (long bits = check[r * stride + w]; bits != 0; bits &= bits - 1)
+                        parity ^= 1 - board[r1 + r][c1 + (w << 6) + Long.numberOfTrailingZeros(bits)];
+            if (parity != 0)
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,221 @@
+package pck;
+import java.io.*;
+import java.lang.management.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Benchmarks every solver entry point on seeded random boards.
+ *
+ * For each board size it times the three console solvers end to end
+ * (Flip_6.solveBoard, Flip_7.buildStructuredPlan,
+ * Flip_8.solveBoardAndReturnMoves), DecompositionSolver, the games'
+ * per-turn path (RegionSearch.firstMove, what trySolveRegion calls) and each
+ * RegionSolver mode on each decomposition phase: the four quadrants,
+ * the two halves and the full board.
+ *
+ * Each case runs for a warm-up period and then a measured period, cycling
+ * through BOARDS_PER_SIZE boards. It reports ops/s, average time per op and
+ * bytes allocated per op by the calling thread. Worker threads (PARALLEL)
+ * are not included in the allocation figure. Results are written as JSON,
+ * one case per line in a fixed order and rounded to three significant
+ * digits, so a re-run compared against the checked-in baseline
+ * (bench/solver-baseline.json) shows up as a readable diff.
+ *
+ * Usage: SolverBenchmark [out.json] [warmupMs] [measureMs] [sizes,...]
+ */
+public class SolverBenchmark {
+
+    static final int[] DEFAULT_SIZES = {4, 6, 8, 12, 16, 20, 32, 64};
+    static final int BOARDS_PER_SIZE = 16;
+    static final long SEED = 20240601L;
+
+    // First-row enumeration is 2^width; wider regions are skipped
+    static final int ENUMERATION_MAX_WIDTH = 16;
+    static final int GRAY_MAX_WIDTH = 24;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static volatile long sink;   // keeps results alive
+
+    interface Op {
+        long run(int[][] board);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String out = args.length > 0 ? args[0] : "bench/solver-results.json";
+        long warmupMs = args.length > 1 ? Long.parseLong(args[1]) : 300;
+        long measureMs = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        int[] sizes = args.length > 3
+                ? Arrays.stream(args[3].split(",")).mapToInt(Integer::parseInt).toArray()
+                : DEFAULT_SIZES;
+
+        PrintStream console = System.out;
+        List<String> rows = new ArrayList<>();
+
+        for (int n : sizes) {
+            int[][][] boards = boards(n);
+            int half = n / 2;
+
+            // ----- End-to-end solvers (they print; silence them) -----
+            SolverContext ctx = SolverContext.of(n, n);
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            try {
+                if (enumerable(Flip_6.solverMode, n))
+                    rows.add(measure(console, "Flip_6.solveBoard", n, Flip_6.solverMode.name(), boards,
+                            warmupMs, measureMs, b -> {
+                                int[][] copy = ctx.copy(b);
+                                Flip_6.solveBoard(copy);
+                                return copy[0][0];
+                            }));
+                if (enumerable(Flip_7.solverMode, n))
+                    rows.add(measure(console, "Flip_7.buildStructuredPlan", n,
+                            Flip_7.decomposition ? "DECOMPOSITION" : Flip_7.solverMode.name(), boards,
+                            warmupMs, measureMs, b -> Flip_7.buildStructuredPlan(b).size()));
+                if (enumerable(Flip_8.solverMode, n))
+                    rows.add(measure(console, "Flip_8.solveBoardAndReturnMoves", n, Flip_8.solverMode.name(), boards,
+                            warmupMs, measureMs, b -> Flip_8.solveBoardAndReturnMoves(b).size()));
+            } finally {
+                System.setOut(console);
+            }
+
+            rows.add(measure(console, "DecompositionSolver.solve", n, "DECOMPOSITION", boards,
+                    warmupMs, measureMs, b -> DecompositionSolver.solve(b).size()));
+
+            // ----- Per-turn game path (trySolveRegion) -----
+            RegionSearch search = new RegionSearch(n, n);
+            rows.add(measure(console, "RegionSearch.firstMove/full", n, "ELIMINATION", boards,
+                    warmupMs, measureMs, b -> search.firstMove(b, 0, n - 1, 0, n - 1)));
+
+            // ----- Each phase with each region solver -----
+            int[][] quadrants = {
+                {0, half - 1, 0, half - 1}, {0, half - 1, half, n - 1},
+                {half, n - 1, 0, half - 1}, {half, n - 1, half, n - 1}};
+            int[][] halves = {{0, half - 1, 0, n - 1}, {half, n - 1, 0, n - 1}};
+            int[][] full = {{0, n - 1, 0, n - 1}};
+
+            for (RegionSolver.Mode mode : RegionSolver.Mode.values()) {
+                rows.add(phase(console, "quadrants", n, mode, quadrants, boards, warmupMs, measureMs));
+                rows.add(phase(console, "halves", n, mode, halves, boards, warmupMs, measureMs));
+                rows.add(phase(console, "full", n, mode, full, boards, warmupMs, measureMs));
+            }
+            rows.removeIf(Objects::isNull);
+        }
+
+        Path path = Paths.get(out);
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        Files.write(path, ("[\n" + String.join(",\n", rows) + "\n]\n").getBytes(StandardCharsets.UTF_8));
+        console.println("Wrote " + rows.size() + " results to " + path);
+    }
+
+    // ==========================================
+    // CASES
+    // ==========================================
+    /** Solves every region of a phase, each on the unsolved board. */
+    static String phase(PrintStream console, String phase, int n, RegionSolver.Mode mode,
+                        int[][] regions, int[][][] boards, long warmupMs, long measureMs) {
+        int width = regions[0][3] - regions[0][2] + 1;
+        if (width > maxWidth(mode))
+            return null;
+
+        BitBoard[] bitBoards = new BitBoard[boards.length];
+        for (int i = 0; i < boards.length; i++)
+            bitBoards[i] = BitBoard.fromArray(boards[i]);
+        Map<int[][], BitBoard> lookup = new IdentityHashMap<>();
+        for (int i = 0; i < boards.length; i++)
+            lookup.put(boards[i], bitBoards[i]);
+
+        return measure(console, "RegionSolver/" + phase, n, mode.name(), boards, warmupMs, measureMs, b -> {
+            BitBoard board = lookup.get(b);
+            long presses = 0;
+            for (int[] r : regions) {
+                List<int[]> moves = RegionSolver.solve(board, r[0], r[1], r[2], r[3], mode);
+                presses += moves == null ? -1 : moves.size();
+            }
+            return presses;
+        });
+    }
+
+    static boolean isEnumeration(RegionSolver.Mode mode) {
+        return mode == RegionSolver.Mode.ENUMERATION || mode == RegionSolver.Mode.PARALLEL;
+    }
+
+    static boolean enumerable(RegionSolver.Mode mode, int n) {
+        return n <= maxWidth(mode);
+    }
+
+    /** Widest region a mode is measured on; Gray code enumeration goes further without a chase per mask. */
+    static int maxWidth(RegionSolver.Mode mode) {
+        if (mode == RegionSolver.Mode.GRAY)
+            return GRAY_MAX_WIDTH;
+        return isEnumeration(mode) ? ENUMERATION_MAX_WIDTH : Integer.MAX_VALUE;
+    }
+
+    // ==========================================
+    // MEASUREMENT
+    // ==========================================
+    static String measure(PrintStream console, String name, int n, String mode, int[][][] boards,
+                          long warmupMs, long measureMs, Op op) {
+        run(op, boards, warmupMs * 1_000_000L);
+
+        long threadId = Thread.currentThread().threadId();
+        long bytes0 = THREADS.getThreadAllocatedBytes(threadId);
+        long t0 = System.nanoTime();
+        long ops = run(op, boards, measureMs * 1_000_000L);
+        long elapsed = System.nanoTime() - t0;
+        long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytes0;
+
+        double opsPerSec = ops * 1e9 / elapsed;
+        double avgNs = (double) elapsed / ops;
+        double bytesPerOp = (double) bytes / ops;
+
+        console.printf("%-36s N=%-3d %-11s %12.1f ops/s %14.0f ns/op %12.0f B/op%n",
+                name, n, mode, opsPerSec, avgNs, bytesPerOp);
+
+        return String.format(Locale.ROOT,
+                "  {\"benchmark\": \"%s\", \"n\": %d, \"mode\": \"%s\", "
+                + "\"opsPerSec\": %s, \"avgNs\": %s, \"bytesPerOp\": %s}",
+                name, n, mode, round(opsPerSec), round(avgNs), round(bytesPerOp));
+    }
+
+    /** Runs op over the boards for at least {@code nanos}; returns ops done. */
+    private static long run(Op op, int[][][] boards, long nanos) {
+        long ops = 0, acc = 0;
+        long end = System.nanoTime() + nanos;
+        do {
+            for (int[][] b : boards)
+                acc += op.run(b);
+            ops += boards.length;
+        } while (System.nanoTime() < end);
+        sink = acc;
+        return ops;
+    }
+
+    private static String round(double v) {
+        if (v == 0)
+            return "0";
+        return new java.math.BigDecimal(v)
+                .round(new java.math.MathContext(3))
+                .stripTrailingZeros()
+                .toPlainString();
+    }
+
+    // ==========================================
+    // SEEDED BOARDS
+    // ==========================================
+    /** BOARDS_PER_SIZE boards: all white plus n*n/2 random presses, so all are solvable. */
+    static int[][][] boards(int n) {
+        Random rand = new Random(SEED ^ n);
+        int[][][] boards = new int[BOARDS_PER_SIZE][][];
+        for (int i = 0; i < BOARDS_PER_SIZE; i++) {
+            BitBoard b = new BitBoard(n, n);
+            for (int k = 0; k < n * n / 2; k++)
+                b.press(rand.nextInt(n), rand.nextInt(n));
+            boards[i] = b.toArray();
+        }
+        return boards;
+    }
+}
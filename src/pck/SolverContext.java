@@ -0,0 +1,190 @@
+package pck;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Board shape and solver scratch space for one board size, replacing the
+ * old {@code static int N} of the console solvers.
+ *
+ * A context is immutable apart from its scratch buffers, which are held
+ * per thread, so one instance can be shared by any number of games and
+ * threads. Contexts are cached per shape by {@link #of}, so a process
+ * serving many games of mixed sizes holds one context, and one set of
+ * buffers per thread, for each size in use.
+ *
+ * Any rows x cols shape is accepted, including rectangular and odd sizes.
+ * The decomposition splits at {@code rows / 2} and {@code cols / 2}; on a
+ * one-row or one-column board some of its regions are empty, and solving an
+ * empty region is a no-op.
+ *
+ * A context also fixes the {@link FlipKernel} presses use. Contexts of the
+ * plus kernel solve through {@link RegionSolver} and {@link RegionSearch};
+ * any other kernel goes through {@link KernelSolver}.
+ */
+public final class SolverContext {
+
+    private static final ConcurrentMap<FlipKernel, ConcurrentMap<Long, SolverContext>> CACHE =
+            new ConcurrentHashMap<>();
+
+    final int rows;
+    final int cols;
+    final FlipKernel kernel;
+    final int rowHalf;
+    final int colHalf;
+
+    /**
+     * The regions of the structured plan as {r1, r2, c1, c2}: squares TL,
+     * TR, BL, BR, then the top and bottom halves, then the full board.
+     * Shared; do not modify.
+     */
+    final int[][] regions;
+
+    private final ThreadLocal<BitBoard> scratch;
+    private final ThreadLocal<RegionSearch> search;
+
+    private SolverContext(int rows, int cols, FlipKernel kernel) {
+        this.rows = rows;
+        this.cols = cols;
+        this.kernel = kernel;
+        this.rowHalf = rows / 2;
+        this.colHalf = cols / 2;
+        this.regions = new int[][] {
+            {0, rowHalf - 1, 0, colHalf - 1},
+            {0, rowHalf - 1, colHalf, cols - 1},
+            {rowHalf, rows - 1, 0, colHalf - 1},
+            {rowHalf, rows - 1, colHalf, cols - 1},
+            {0, rowHalf - 1, 0, cols - 1},
+            {rowHalf, rows - 1, 0, cols - 1},
+            {0, rows - 1, 0, cols - 1}
+        };
+        this.scratch = ThreadLocal.withInitial(() -> new BitBoard(rows, cols));
+        this.search = ThreadLocal.withInitial(() -> new RegionSearch(rows, cols));
+    }
+
+    /** Context for the shape with {@link FlipKernel#DEFAULT} presses. */
+    static SolverContext of(int rows, int cols) {
+        return of(rows, cols, FlipKernel.DEFAULT);
+    }
+
+    static SolverContext of(int rows, int cols, FlipKernel kernel) {
+        if (rows < 1 || cols < 1)
+            throw new IllegalArgumentException("Board size must be positive: " + rows + "x" + cols);
+        return CACHE.computeIfAbsent(kernel, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(((long) rows << 32) | cols, k -> new SolverContext(rows, cols, kernel));
+    }
+
+    /** Context for the shape of {@code board}. */
+    static SolverContext of(int[][] board) {
+        return of(board.length, board[0].length);
+    }
+
+    // ==========================================
+    // BOARD OPERATIONS (1=White, 0=Black)
+    // ==========================================
+    boolean inBounds(int r, int c) {
+        return r >= 0 && r < rows && c >= 0 && c < cols;
+    }
+
+    /** Flips the kernel's cells around (r,c). */
+    void flip(int[][] board, int r, int c) {
+        kernel.flip(board, r, c);
+    }
+
+    void press(BitBoard board, int r, int c) {
+        kernel.press(board, r, c);
+    }
+
+    boolean isAllWhite(int[][] board) {
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                if (board[i][j] == 0)
+                    return false;
+        return true;
+    }
+
+    int[][] copy(int[][] board) {
+        int[][] newBoard = new int[rows][];
+        for (int i = 0; i < rows; i++)
+            newBoard[i] = board[i].clone();
+        return newBoard;
+    }
+
+    static boolean isEmpty(int[] region) {
+        return region[0] > region[1] || region[2] > region[3];
+    }
+
+    /**
+     * True if every region of the plan is within {@link KernelSolver#fits};
+     * otherwise solving the larger ones throws. Always true for the plus kernel.
+     */
+    boolean fitsSolver() {
+        for (int[] region : regions)
+            if (!isEmpty(region)
+                    && !KernelSolver.fits(kernel, region[1] - region[0] + 1, region[3] - region[2] + 1))
+                return false;
+        return true;
+    }
+
+    /** Message for a board that is not {@link #fitsSolver}. */
+    String tooLargeMessage() {
+        return "Board too large for the " + kernel + " kernel: at most "
+                + SolvabilityOracle.MAX_CELLS + " cells.";
+    }
+
+    // ==========================================
+    // REGION SOLVING
+    // ==========================================
+    /**
+     * Presses that turn the region white, as {@link RegionSolver#solve}, or
+     * null if it cannot be solved in isolation. The board is read through
+     * this thread's scratch copy and not changed. An enumeration mode on a
+     * region with more than {@link RegionSolver#MAX_ENUMERATED_CELLS} free
+     * cells is solved by ELIMINATION instead; for the plus kernel that
+     * returns the same moves.
+     */
+    List<int[]> solve(int[][] board, int[] region, RegionSolver.Mode mode) {
+        if (isEmpty(region))
+            return new ArrayList<>();
+        BitBoard b = scratch.get();
+        b.load(board);
+        return KernelSolver.solve(b, kernel, region[0], region[1], region[2], region[3],
+                modeFor(region, mode));
+    }
+
+    private RegionSolver.Mode modeFor(int[] region, RegionSolver.Mode mode) {
+        boolean enumerates = mode == RegionSolver.Mode.ENUMERATION
+                || mode == RegionSolver.Mode.PARALLEL || mode == RegionSolver.Mode.GRAY;
+        long cells = (long) kernel.chaseDepth * (region[3] - region[2] + 1);
+        return enumerates && cells > RegionSolver.MAX_ENUMERATED_CELLS
+                ? RegionSolver.Mode.ELIMINATION : mode;
+    }
+
+    /**
+     * First press of the region's lowest-mask solution, packed as
+     * {@code row * cols + col}, or -1 if there is none. Allocation-free
+     * after this thread's first call with the plus kernel.
+     */
+    int firstMove(int[][] board, int[] region) {
+        if (isEmpty(region))
+            return -1;
+        if (!kernel.isPlus()) {
+            BitBoard b = scratch.get();
+            b.load(board);
+            return firstMove(b, region);
+        }
+        return search.get().firstMove(board, region[0], region[1], region[2], region[3]);
+    }
+
+    int firstMove(BitBoard board, int[] region) {
+        if (isEmpty(region))
+            return -1;
+        if (!kernel.isPlus())
+            return KernelSolver.firstMove(board, kernel, region[0], region[1], region[2], region[3]);
+        return search.get().firstMove(board, region[0], region[1], region[2], region[3]);
+    }
+
+    @Override
+    public String toString() {
+        return kernel.isPlus() ? rows + "x" + cols : rows + "x" + cols + " " + kernel;
+    }
+}
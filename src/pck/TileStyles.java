@@ -0,0 +1,88 @@
+package pck;
+
+import javafx.geometry.Insets;
+import javafx.scene.control.Button;
+import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+import java.util.*;
+
+/**
+ * Precomputed looks for board tiles.
+ *
+ * Every visual state a tile can be in (white/black x normal, hover, region,
+ * last move, hint) is built once as a Background and a Border, and a tile is
+ * restyled by handing it those objects. Nothing is parsed: no style string,
+ * no regex, no CSS pass. Move highlights take an arbitrary colour, so their
+ * borders are built on first use and cached per colour.
+ */
+public class TileStyles {
+
+    enum State { NORMAL, HOVER, REGION, LAST_MOVE, HINT }
+
+    private static final CornerRadii RADII = new CornerRadii(6);
+    private static final Color BLACK_TILE = Color.web("#212529");
+    private static final Color WHITE_BORDER = Color.web("#dee2e6");
+    private static final Color BLACK_BORDER = Color.web("#495057");
+
+    private final Background[] backgrounds = new Background[2];     // [value]
+    private final Border[][] borders = new Border[2][State.values().length];
+    private final Border flashBorder;
+    private final Map<Color, Border> moveBorders = new HashMap<>();
+    private final Color markOnWhite;                               // colour of the ● on white tiles
+
+    TileStyles(Color hover, Color region, Color lastMove, Color hint, Color flash, Color markOnWhite) {
+        this.markOnWhite = markOnWhite;
+        backgrounds[0] = new Background(new BackgroundFill(BLACK_TILE, RADII, Insets.EMPTY));
+        backgrounds[1] = new Background(new BackgroundFill(Color.WHITE, RADII, Insets.EMPTY));
+
+        for (int value = 0; value < 2; value++) {
+            Color normal = value == 1 ? WHITE_BORDER : BLACK_BORDER;
+            borders[value][State.NORMAL.ordinal()] = border(normal, 2);
+            borders[value][State.HOVER.ordinal()] = border(hover, 2);
+            borders[value][State.REGION.ordinal()] = border(region, 3);
+            borders[value][State.LAST_MOVE.ordinal()] = border(lastMove, 3);
+            borders[value][State.HINT.ordinal()] = border(hint, 3);
+        }
+        this.flashBorder = border(flash, 3);
+    }
+
+    /** State shown for a set of {@link DirtyTiles} flags (move and flash aside). */
+    static State state(int flags) {
+        if ((flags & DirtyTiles.LAST_MOVE) != 0) return State.LAST_MOVE;
+        if ((flags & DirtyTiles.HINT) != 0) return State.HINT;
+        if ((flags & DirtyTiles.REGION) != 0) return State.REGION;
+        if ((flags & DirtyTiles.HOVER) != 0) return State.HOVER;
+        return State.NORMAL;
+    }
+
+    /**
+     * Gives the tile the look for its value (1=White, 0=Black) and overlay
+     * flags. The strongest overlay wins: flash, move, then {@link #state}.
+     */
+    void apply(Button tile, int value, int flags, Color moveColor) {
+        Border border;
+        if ((flags & DirtyTiles.FLASH) != 0)
+            border = flashBorder;
+        else if ((flags & DirtyTiles.MOVE) != 0)
+            border = moveBorder(moveColor);
+        else
+            border = borders[value][state(flags).ordinal()];
+
+        if (tile.getBackground() != backgrounds[value]) {
+            tile.setBackground(backgrounds[value]);
+            tile.setText(value == 1 ? "●" : "○");
+            tile.setTextFill(value == 1 ? markOnWhite : Color.WHITE);
+        }
+        if (tile.getBorder() != border)
+            tile.setBorder(border);
+    }
+
+    private Border moveBorder(Color color) {
+        // Width 2, like the tile's own border, so only the colour changes
+        return moveBorders.computeIfAbsent(color, c -> border(c, 2));
+    }
+
+    private static Border border(Color color, double width) {
+        return new Border(new BorderStroke(color, BorderStrokeStyle.SOLID, RADII, new BorderWidths(width)));
+    }
+}
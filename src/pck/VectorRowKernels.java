@@ -0,0 +1,63 @@
+package pck;
+
+import jdk.incubator.vector.*;
+
+/**
+ * SIMD versions of the {@link RowKernels} loops. Each handles whole vectors
+ * of words and returns where it stopped, so the caller's scalar loop finishes
+ * the tail. Only loaded when RowKernels finds the vector module.
+ */
+final class VectorRowKernels {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    static final int LANES = SPECIES.length();
+
+    private static final int PAD = RowKernels.PAD;
+
+    private VectorRowKernels() {
+    }
+
+    /** Vector part of {@link RowKernels#pressRow}; returns the first word not done. */
+    static int pressRow(long[] bits, int base, int above, int below,
+                        long[] pattern, int lo, int hi) {
+        int end = lo + SPECIES.loopBound(hi - lo + 1);
+        int w = lo;
+        for (; w < end; w += LANES) {
+            LongVector p = LongVector.fromArray(SPECIES, pattern, PAD + w);
+            LongVector prev = LongVector.fromArray(SPECIES, pattern, PAD + w - 1);
+            LongVector next = LongVector.fromArray(SPECIES, pattern, PAD + w + 1);
+
+            LongVector spread = p
+                    .lanewise(VectorOperators.XOR, p.lanewise(VectorOperators.LSHL, 1))
+                    .lanewise(VectorOperators.XOR, p.lanewise(VectorOperators.LSHR, 1))
+                    .lanewise(VectorOperators.XOR, prev.lanewise(VectorOperators.LSHR, 63))
+                    .lanewise(VectorOperators.XOR, next.lanewise(VectorOperators.LSHL, 63));
+
+            LongVector.fromArray(SPECIES, bits, base + w)
+                    .lanewise(VectorOperators.XOR, spread)
+                    .intoArray(bits, base + w);
+            if (above >= 0)
+                LongVector.fromArray(SPECIES, bits, above + w)
+                        .lanewise(VectorOperators.XOR, p)
+                        .intoArray(bits, above + w);
+            if (below >= 0)
+                LongVector.fromArray(SPECIES, bits, below + w)
+                        .lanewise(VectorOperators.XOR, p)
+                        .intoArray(bits, below + w);
+        }
+        return w;
+    }
+
+    /**
+     * Scans whole vectors of {@code a[from..to)}. Returns -1 as soon as a
+     * vector has a non-zero lane, otherwise the first index not scanned.
+     */
+    static int firstSetChunk(long[] a, int from, int to) {
+        int end = from + SPECIES.loopBound(to - from);
+        int i = from;
+        for (; i < end; i += LANES)
+            if (LongVector.fromArray(SPECIES, a, i).compare(VectorOperators.NE, 0L).anyTrue())
+                return -1;
+        return i;
+    }
+}